@@ -15,4 +15,19 @@ API.interceptors.request.use(
     (error) => Promise.reject(error)
 );
 
+/**
+ * GETs a cursor-paged list endpoint and follows its X-Next-Cursor header
+ * until the last page, returning every item.
+ */
+export async function getAllPages<T>(url: string, cursor?: string): Promise<T[]> {
+    const items: T[] = [];
+    let next: string | undefined = cursor;
+    do {
+        const resp = await API.get<T[]>(url, { params: next ? { cursor: next } : undefined });
+        items.push(...resp.data);
+        next = resp.headers["x-next-cursor"];
+    } while (next);
+    return items;
+}
+
 export default API;
@@ -3,6 +3,7 @@ import { Stage, Layer, Line } from "react-konva";
 import { useTheme } from "@mui/material/styles";
 import { CircularProgress, Box } from "@mui/material";
 import { SpotRecord } from "../types";
+import API, { getAllPages } from "../api";
 
 interface GeoJsonFeature {
     type: "Feature";
@@ -131,6 +132,17 @@ const Parking2DKonva: React.FC<Parking2DKonvaProps> = ({
                     const joined = numericSpotIds.join(",");
                     const multiResp = await API.get(`/reservations/multi-spot?spotIds=${joined}`);
                     multiSpotReservations = multiResp.data;
+
+                    // spots with more reservations than one page come back as "spotId=cursor;..."
+                    const nextCursors: string | undefined = multiResp.headers["x-next-cursors"];
+                    if (nextCursors) {
+                        await Promise.all(nextCursors.split(";").map(async (pair) => {
+                            const sid = pair.substring(0, pair.indexOf("="));
+                            const cursor = pair.substring(pair.indexOf("=") + 1);
+                            const rest = await getAllPages<Reservation>(`/reservations/spot-history/${sid}`, cursor);
+                            multiSpotReservations[sid] = [...(multiSpotReservations[sid] || []), ...rest];
+                        }));
+                    }
                 }
 
                 // d) Merge occupancy and reservations info into the local spotsData features.
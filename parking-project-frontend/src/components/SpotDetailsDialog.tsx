@@ -16,7 +16,7 @@ import {
 } from "@mui/material";
 import DeleteIcon from "@mui/icons-material/Delete";
 import moment from "moment";
-import API from "../api";
+import API, { getAllPages } from "../api";
 import WeekPicker, { TimeInterval } from "./WeekPicker";
 import VehicleTypeSelector from "./VehicleTypeSelector";
 import { useAuth } from "../contexts/AuthContext";
@@ -72,8 +72,7 @@ const SpotDetailsDialog: React.FC<SpotDetailsDialogProps> = ({
         setError(null);
         setLoadingHistory(true);
         try {
-            const resp = await API.get(`/reservations/spot-history/${spotId}`);
-            setReservations(resp.data);
+            setReservations(await getAllPages<ReservationData>(`/reservations/spot-history/${spotId}`));
         } catch (err) {
             console.error("Failed to load spot history:", err);
             setError("Could not load reservation history");
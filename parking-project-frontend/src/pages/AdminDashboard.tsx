@@ -27,7 +27,7 @@ import {
 } from "@mui/icons-material";
 import { useNavigate } from "react-router-dom";
 import { useAuth } from "../contexts/AuthContext";
-import API from "../api";
+import { fetchSpots } from "../utils/spotData";
 import MainArea from "../components/MainArea";
 import RightPanel from "../components/RightPanel";
 import { SpotRecord } from "../types";
@@ -35,11 +35,12 @@ import RefreshIcon from "@mui/icons-material/Refresh";
 
 import { Client, Message } from "@stomp/stompjs";
 import SockJS from "sockjs-client";
+import { applyParkingUpdate, createSequenceGuard, ParkingUpdateMessage } from "../utils/parkingUpdates";
 
 const baseURL = "http://localhost:8080";
 
 /**
- * Convert raw spot from GET /parking to SpotRecord
+ * Convert raw spot (summary + geometry) to SpotRecord
  */
 function toSpotRecord(spot: any): SpotRecord {
     return {
@@ -97,8 +98,7 @@ export default function AdminDashboard() {
         setIsLoading(true);
         setError(null);
         try {
-            const resp = await API.get("/parking");
-            const data = resp.data as any[];
+            const data = await fetchSpots();
             setSpots(data.map(toSpotRecord));
         } catch (err) {
             console.error("Error loading spots:", err);
@@ -122,26 +122,16 @@ export default function AdminDashboard() {
             webSocketFactory: () => socket as any,
             onConnect: () => {
                 console.log("[AdminDashboard] STOMP connected!");
-                stompClient.subscribe("/topic/parking-updates", (msg: Message) => {
-                    const payload = JSON.parse(msg.body);
-                    console.log("[AdminDashboard] Received WebSocket update:", payload);
-                    if (Array.isArray(payload)) {
-                        console.log("[AdminDashboard] Updating all spots:", payload.length);
-                        setSpots(payload.map(toSpotRecord));
-                    } else {
-                        const updated = toSpotRecord(payload);
-                        console.log("[AdminDashboard] Updating single spot:", updated.spot_id);
-                        setSpots((prev) => {
-                            const idx = prev.findIndex((s) => s.spot_id === updated.spot_id);
-                            if (idx >= 0) {
-                                const copy = [...prev];
-                                copy[idx] = updated;
-                                return copy;
-                            }
-                            return [...prev, updated];
-                        });
+                const accept = createSequenceGuard();
+                const onUpdate = (msg: Message) => {
+                    const payload = JSON.parse(msg.body) as ParkingUpdateMessage;
+                    console.log("[AdminDashboard] Received WebSocket update:", payload.type, payload.sequence);
+                    if (accept(payload)) {
+                        setSpots((prev) => applyParkingUpdate(prev, payload));
                     }
-                });
+                };
+                stompClient.subscribe("/topic/parking-updates", onUpdate);
+                stompClient.subscribe("/app/parking-snapshot", onUpdate);
             },
             onDisconnect: () => {
                 console.log("[AdminDashboard] STOMP disconnected!");
@@ -16,7 +16,7 @@ import {
 import DeleteIcon from "@mui/icons-material/Delete";
 import AccessTimeIcon from "@mui/icons-material/AccessTime";
 import LocalParkingIcon from "@mui/icons-material/LocalParking";
-import API from "../api";
+import API, { getAllPages } from "../api";
 import { 
     parseBackendTime, 
     formatDisplayDate, 
@@ -45,8 +45,7 @@ const MyReservationsPage: React.FC = () => {
         setLoading(true);
         setError(null);
         try {
-            const resp = await API.get("/reservations/mine");
-            setReservations(resp.data);
+            setReservations(await getAllPages<Reservation>("/reservations/mine"));
         } catch (err) {
             console.error("Failed to load my reservations:", err);
             setError("Không thể tải danh sách đặt chỗ.");
@@ -31,16 +31,17 @@ import {
 } from "@mui/icons-material";
 import { useNavigate } from "react-router-dom";
 import { useAuth } from "../contexts/AuthContext";
-import API from "../api";
+import { fetchSpots } from "../utils/spotData";
 import MainArea from "../components/MainArea";
 import RightPanel from "../components/RightPanel";
 import { SpotRecord } from "../types";
 
 import { Client, Message } from "@stomp/stompjs";
 import SockJS from "sockjs-client";
+import { applyParkingUpdate, createSequenceGuard, ParkingUpdateMessage } from "../utils/parkingUpdates";
 
 /**
- * Convert raw spot from GET /parking to SpotRecord
+ * Convert raw spot (summary + geometry) to SpotRecord
  */
 function toSpotRecord(spot: unknown): SpotRecord {
     const spotData = spot as { 
@@ -93,8 +94,7 @@ export default function UserDashboard() {
         setIsLoading(true);
         setError(null);
         try {
-            const resp = await API.get("/parking");
-            const data = resp.data as unknown[];
+            const data = await fetchSpots();
             setSpots(data.map(toSpotRecord));
         } catch (err) {
             console.error("Error loading spots:", err);
@@ -125,26 +125,16 @@ export default function UserDashboard() {
             },
             onConnect: () => {
                 console.log("[UserDashboard] STOMP connected successfully!");
-                stompClient.subscribe("/topic/parking-updates", (msg: Message) => {
-                    const payload = JSON.parse(msg.body);
-                    console.log("[UserDashboard] Received WebSocket update:", payload);
-                    if (Array.isArray(payload)) {
-                        console.log("[UserDashboard] Updating all spots:", payload.length);
-                        setSpots(payload.map(toSpotRecord));
-                    } else {
-                        const updated = toSpotRecord(payload);
-                        console.log("[UserDashboard] Updating single spot:", updated.spot_id);
-                        setSpots((prev) => {
-                            const idx = prev.findIndex((s) => s.spot_id === updated.spot_id);
-                            if (idx >= 0) {
-                                const copy = [...prev];
-                                copy[idx] = updated;
-                                return copy;
-                            }
-                            return [...prev, updated];
-                        });
+                const accept = createSequenceGuard();
+                const onUpdate = (msg: Message) => {
+                    const payload = JSON.parse(msg.body) as ParkingUpdateMessage;
+                    console.log("[UserDashboard] Received WebSocket update:", payload.type, payload.sequence);
+                    if (accept(payload)) {
+                        setSpots((prev) => applyParkingUpdate(prev, payload));
                     }
-                });
+                };
+                stompClient.subscribe("/topic/parking-updates", onUpdate);
+                stompClient.subscribe("/app/parking-snapshot", onUpdate);
             },
             onDisconnect: () => {
                 console.log("[UserDashboard] STOMP disconnected!");
@@ -170,8 +160,7 @@ export default function UserDashboard() {
         setIsLoading(true);
         setError(null);
         try {
-            const resp = await API.get("/parking");
-            const data = resp.data as Array<any>;
+            const data = await fetchSpots();
             setSpots(data.map(toSpotRecord));
         } catch (err) {
             console.error("Error loading spots:", err);
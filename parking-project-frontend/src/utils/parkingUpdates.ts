@@ -0,0 +1,41 @@
+import { SpotRecord } from '../types';
+
+/**
+ * Message trên /topic/parking-updates (và /app/parking-snapshot)
+ */
+export interface ParkingUpdateMessage {
+    type: 'SNAPSHOT' | 'DELTA';
+    sequence: number;
+    spots: { label: string; status: string; occupied: boolean }[];
+}
+
+/**
+ * Áp dụng snapshot/delta vào danh sách spot hiện tại (theo label)
+ */
+export const applyParkingUpdate = (prev: SpotRecord[], msg: ParkingUpdateMessage): SpotRecord[] => {
+    const byLabel = new Map(msg.spots.map((s) => [s.label, s.status === 'OCCUPIED']));
+    return prev.map((spot) =>
+        byLabel.has(spot.spot_id) ? { ...spot, occupied: byLabel.get(spot.spot_id) } : spot
+    );
+};
+
+/**
+ * Giữ sequence cuối cùng đã áp dụng; bỏ qua delta cũ hơn snapshot
+ */
+export const createSequenceGuard = () => {
+    let lastSequence = -1;
+    return (msg: ParkingUpdateMessage): boolean => {
+        if (msg.type === 'SNAPSHOT') {
+            if (msg.sequence < lastSequence) {
+                return false;
+            }
+            lastSequence = msg.sequence;
+            return true;
+        }
+        if (msg.sequence <= lastSequence) {
+            return false;
+        }
+        lastSequence = msg.sequence;
+        return true;
+    };
+};
@@ -0,0 +1,32 @@
+import API from '../api';
+
+/**
+ * Spot như GET /parking trả về, nhưng ghép từ /parking/summary (trạng thái)
+ * và /parking/geometry (tọa độ, trình duyệt tự cache theo ETag)
+ */
+export interface RawSpot {
+    id: number;
+    label: string;
+    status: string;
+    category: string;
+    occupied: boolean;
+    controlled: boolean;
+    coordinates?: string;
+    imageCoordinates?: string;
+}
+
+export const fetchSpots = async (): Promise<RawSpot[]> => {
+    const [summary, geometry] = await Promise.all([
+        API.get('/parking/summary'),
+        API.get('/parking/geometry'),
+    ]);
+    const geometryById = new Map<number, { coordinates?: string; imageCoordinates?: string }>(
+        (geometry.data as Array<{ id: number; coordinates?: string; imageCoordinates?: string }>)
+            .map((g) => [g.id, g])
+    );
+    return (summary.data as RawSpot[]).map((spot) => ({
+        ...spot,
+        coordinates: geometryById.get(spot.id)?.coordinates,
+        imageCoordinates: geometryById.get(spot.id)?.imageCoordinates,
+    }));
+};
@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Counts SQL statements issued by the main endpoints, using Hibernate statistics
+# (only collected with the "benchmark" profile active).
+#
+# Run once with the second-level cache on (default) and once with it off to compare:
+#   mvn spring-boot:run -Dspring-boot.run.profiles=benchmark
+#   mvn spring-boot:run -Dspring-boot.run.profiles=benchmark -Dspring-boot.run.arguments="--spring.jpa.properties.hibernate.cache.use_second_level_cache=false --spring.jpa.properties.hibernate.cache.use_query_cache=false"
+#
+# Keep the detection feed running during the cached run: each occupancy flush evicts the
+# spots it wrote, so the hit ratio measured with a live feed is the one that matters.
+#
+# Usage: ADMIN_TOKEN=<jwt> USER_TOKEN=<jwt> SPOT_ID=1 ./query-count-benchmark.sh [iterations]
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+ITERATIONS="${1:-100}"
+SPOT_ID="${SPOT_ID:-1}"
+: "${ADMIN_TOKEN:?set ADMIN_TOKEN}"
+: "${USER_TOKEN:?set USER_TOKEN}"
+
+admin() { curl -sf -H "Authorization: Bearer $ADMIN_TOKEN" "$@"; }
+user() { curl -sf -o /dev/null -H "Authorization: Bearer $USER_TOKEN" "$@"; }
+
+measure() {
+  local name="$1"; shift
+  admin -X POST "$BASE_URL/api/admin/cache/stats/reset" > /dev/null
+  for _ in $(seq "$ITERATIONS"); do
+    user "$@"
+  done
+  echo "== $name x$ITERATIONS"
+  admin "$BASE_URL/api/admin/cache/stats"
+  echo
+}
+
+# warm-up so both runs start from the same state
+user "$BASE_URL/api/user/profile"
+
+# every authenticated request also loads the caller's User in the JWT filter
+measure "GET /api/user/profile"              "$BASE_URL/api/user/profile"
+measure "GET /api/reservations/mine"         "$BASE_URL/api/reservations/mine"
+measure "GET /api/reservations/spot-history" "$BASE_URL/api/reservations/spot-history/$SPOT_ID"
@@ -19,6 +19,7 @@ import org.springframework.web.filter.CorsFilter;
 import org.zakariafarih.parkingmanager.security.JwtAuthenticationEntryPoint;
 import org.zakariafarih.parkingmanager.security.JwtAuthenticationFilter;
 import org.zakariafarih.parkingmanager.security.RateLimitingFilter;
+import org.zakariafarih.parkingmanager.security.UserRateLimitingFilter;
 
 import java.util.List;
 
@@ -29,13 +30,16 @@ public class WebSecurityConfig {
     private final JwtAuthenticationEntryPoint unauthorizedHandler;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final RateLimitingFilter rateLimitingFilter;
+    private final UserRateLimitingFilter userRateLimitingFilter;
 
     public WebSecurityConfig(JwtAuthenticationEntryPoint unauthorizedHandler,
                              JwtAuthenticationFilter jwtAuthenticationFilter,
-                             RateLimitingFilter rateLimitingFilter) {
+                             RateLimitingFilter rateLimitingFilter,
+                             UserRateLimitingFilter userRateLimitingFilter) {
         this.unauthorizedHandler = unauthorizedHandler;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.rateLimitingFilter = rateLimitingFilter;
+        this.userRateLimitingFilter = userRateLimitingFilter;
     }
 
     @Bean
@@ -73,6 +77,7 @@ public class WebSecurityConfig {
                     config.setAllowedOrigins(List.of("http://localhost:5173", "http://localhost:5174"));
                     config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
                     config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+                    config.setExposedHeaders(List.of("X-Next-Cursor", "X-Next-Cursors"));
                     config.setAllowCredentials(true);
                     return config;
                 }))
@@ -84,7 +89,10 @@ public class WebSecurityConfig {
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         // Other endpoints allowed without authentication:
                         .requestMatchers("/api/auth/**", "/api/parking/auto", "/api/parking/update-status",
-                                "/api/parking/python-occupancies", "/api/parking/define-corners", "/api/parking", "/uploads/**")
+                                "/api/parking/python-occupancies", "/api/parking/occupancy-frame", "/api/parking/detections",
+                                "/api/parking/ordinals",
+                                "/api/parking/define-corners", "/api/parking", "/api/parking/summary", "/api/parking/geometry",
+                                "/uploads/**")
                         .permitAll()
                         .requestMatchers("/ws/**").permitAll()
                         .requestMatchers("/api/admin/**").hasAuthority("ROLE_ADMIN")
@@ -92,8 +100,11 @@ public class WebSecurityConfig {
                         .hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(rateLimitingFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // per IP before JWT, so floods never reach token parsing or user loading
+                .addFilterBefore(rateLimitingFilter, JwtAuthenticationFilter.class)
+                // per user after JWT, once the caller is known
+                .addFilterAfter(userRateLimitingFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,58 @@
+package org.zakariafarih.parkingmanager.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.zakariafarih.parkingmanager.payload.HibernateStatsDTO;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+public class AdminCacheController {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Statement and cache counters since the last reset (see benchmark/query-count-benchmark.sh).
+     * All zero unless statistics are on (the "benchmark" profile).
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<HibernateStatsDTO> getStats() {
+        Statistics s = statistics();
+        return ResponseEntity.ok(new HibernateStatsDTO(
+                s.getPrepareStatementCount(),
+                s.getQueryExecutionCount(),
+                s.getEntityLoadCount(),
+                s.getEntityFetchCount(),
+                s.getSecondLevelCacheHitCount(),
+                s.getSecondLevelCacheMissCount(),
+                s.getSecondLevelCachePutCount(),
+                s.getQueryCacheHitCount(),
+                s.getQueryCacheMissCount()));
+    }
+
+    @PostMapping("/stats/reset")
+    public ResponseEntity<?> resetStats() {
+        statistics().clear();
+        return ResponseEntity.ok("Statistics reset");
+    }
+
+    /**
+     * Drops every second-level and query cache entry, e.g. after editing the database by hand.
+     */
+    @PostMapping("/evict")
+    public ResponseEntity<?> evictAll() {
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        return ResponseEntity.ok("Second-level cache cleared");
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -1,11 +1,17 @@
 package org.zakariafarih.parkingmanager.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.zakariafarih.parkingmanager.service.ReservationExportService;
 import org.zakariafarih.parkingmanager.service.ReservationService;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequestMapping("/api/admin/reservations")
 @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -14,6 +20,9 @@ public class AdminReservationController {
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private ReservationExportService reservationExportService;
+
     /**
      * Admin force-cancel a reservation (no user ownership check).
      */
@@ -23,4 +32,26 @@ public class AdminReservationController {
         return ResponseEntity.ok("Reservation cancelled by admin");
     }
 
+    /**
+     * Streams every reservation starting in [from, to) as NDJSON (default) or CSV.
+     * Rows are flat (ids, times, user email, spot label) and written as they are read.
+     * Example:
+     *   GET /api/admin/reservations/export?format=csv&from=2025-03-01T00:00&to=2025-04-01T00:00
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReservations(
+            @RequestParam(value = "format", defaultValue = "NDJSON") ReservationExportService.Format format,
+            @RequestParam(value = "from", required = false) LocalDateTime from,
+            @RequestParam(value = "to", required = false) LocalDateTime to
+    ) {
+        LocalDateTime rangeStart = from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime rangeEnd = to != null ? to : LocalDateTime.of(9999, 1, 1, 0, 0);
+        boolean csv = format == ReservationExportService.Format.CSV;
+        StreamingResponseBody body = out -> reservationExportService.export(format, rangeStart, rangeEnd, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"reservations." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
 }
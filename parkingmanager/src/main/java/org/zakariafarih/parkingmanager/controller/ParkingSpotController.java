@@ -1,16 +1,33 @@
 package org.zakariafarih.parkingmanager.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.zakariafarih.parkingmanager.model.ParkingSpot;
 import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.payload.DetectionFrameDTO;
+import org.zakariafarih.parkingmanager.payload.IngestionStatsDTO;
+import org.zakariafarih.parkingmanager.payload.LayoutImportResultDTO;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
 import org.zakariafarih.parkingmanager.payload.ParkingStatusUpdateRequest;
 import org.zakariafarih.parkingmanager.payload.PythonOccupancyDTO;
 import org.zakariafarih.parkingmanager.payload.SpotCornerDTO;
+import org.zakariafarih.parkingmanager.payload.SpotLocationDTO;
+import org.zakariafarih.parkingmanager.service.OccupancyIngestionService;
 import org.zakariafarih.parkingmanager.service.ParkingSpotService;
+import org.zakariafarih.parkingmanager.service.SpotGeometryService;
+import org.zakariafarih.parkingmanager.service.SpotLayoutImporter;
+import org.zakariafarih.parkingmanager.service.SpotSpatialIndex;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -23,12 +40,22 @@ public class ParkingSpotController {
     @Autowired
     private ParkingSpotService parkingSpotService;
 
+    @Autowired
+    private OccupancyIngestionService occupancyIngestionService;
+
+    @Autowired
+    private SpotGeometryService spotGeometryService;
+
+    @Autowired
+    private SpotSpatialIndex spotSpatialIndex;
+
+    @Autowired
+    private SpotLayoutImporter spotLayoutImporter;
+
     @GetMapping("/geo-ids")
     public ResponseEntity<List<String>> getNextGeoSpotIds(@RequestParam int limit) {
-        List<ParkingSpot> all = parkingSpotService.getAllParkingSpots();
         List<String> numericLabels = new ArrayList<>();
-        for (ParkingSpot sp : all) {
-            String lbl = sp.getLabel();
+        for (String lbl : parkingSpotService.getSpotOrdinals()) {
             if (lbl.matches("\\d+")) {
                 numericLabels.add(lbl);
             }
@@ -59,6 +86,70 @@ public class ParkingSpotController {
         return ResponseEntity.ok(parkingSpotService.getAllParkingSpots());
     }
 
+    /**
+     * Spot list without geometry (id, label, status, category, occupied, controlled).
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<List<ParkingSpotSummaryDTO>> getSpotSummaries() {
+        return ResponseEntity.ok(parkingSpotService.getSpotSummaries());
+    }
+
+    /**
+     * Geometry of all spots (id, label, coordinates, imageCoordinates, imageLotId) as a precomputed blob.
+     * Clients revalidate with If-None-Match (304 when unchanged); gzip is served as-is
+     * when accepted.
+     */
+    @GetMapping("/geometry")
+    public ResponseEntity<byte[]> getSpotGeometry(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SpotGeometryService.Blob blob = spotGeometryService.current();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? blob.gzipEtag() : blob.etag();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(blob.etag()) || ifNoneMatch.contains(blob.gzipEtag()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(blob.gzip());
+        }
+        return response.body(blob.json());
+    }
+
+    /**
+     * Spots (with geometry) whose bounds intersect the map viewport. Example:
+     *   GET /api/parking/within?minLon=90&minLat=240&maxLon=120&maxLat=260
+     */
+    @GetMapping("/within")
+    public ResponseEntity<?> findSpotsWithin(@RequestParam double minLon,
+                                             @RequestParam double minLat,
+                                             @RequestParam double maxLon,
+                                             @RequestParam double maxLat) {
+        if (maxLon < minLon || maxLat < minLat) {
+            return ResponseEntity.badRequest().body("Viewport max must not be below min");
+        }
+        return ResponseEntity.ok(spotSpatialIndex.findWithin(minLon, minLat, maxLon, maxLat));
+    }
+
+    /**
+     * The k AVAILABLE spots nearest to a point, nearest first. Example:
+     *   GET /api/parking/nearest?lon=95&lat=250&k=5
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<SpotLocationDTO>> findNearestAvailable(@RequestParam double lon,
+                                                                      @RequestParam double lat,
+                                                                      @RequestParam(defaultValue = "5") int k) {
+        return ResponseEntity.ok(spotSpatialIndex.findNearestAvailable(lon, lat, Math.max(1, Math.min(k, 50))));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<ParkingSpot> updateParkingSpotStatus(@PathVariable Long id,
@@ -77,8 +168,56 @@ public class ParkingSpotController {
     // Python occupancy approach
     @PostMapping("/python-occupancies")
     public ResponseEntity<?> updatePythonOccupancies(@RequestBody List<PythonOccupancyDTO> occupancyList) {
-        parkingSpotService.updatePythonOccupancies(occupancyList);
-        return ResponseEntity.ok("Python occupancy updates processed.");
+        occupancyIngestionService.submitPythonOccupancies(occupancyList);
+        return ResponseEntity.accepted().body("Python occupancy updates queued.");
+    }
+
+    // Compact binary occupancy frame (lot id, sequence, bitset by spot ordinal)
+    @PostMapping(value = "/occupancy-frame", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> updateOccupancyFrame(HttpServletRequest request) throws IOException {
+        if (!occupancyIngestionService.submitBinaryFrame(request.getInputStream())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Occupancy frame rejected (stale sequence or unknown lot).");
+        }
+        return ResponseEntity.accepted().body("Occupancy frame queued.");
+    }
+
+    /**
+     * Raw vehicle boxes of one camera frame; the backend matches them to the spots'
+     * image corners and queues the occupancy like any other frame.
+     */
+    @PostMapping("/detections")
+    public ResponseEntity<?> submitDetections(@RequestBody DetectionFrameDTO detections) {
+        if (!occupancyIngestionService.submitDetections(detections)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Detection frame rejected (stale sequence or unknown lot).");
+        }
+        return ResponseEntity.accepted().body("Detection frame queued.");
+    }
+
+    @GetMapping("/ingestion-stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<IngestionStatsDTO>> getIngestionStats() {
+        return ResponseEntity.ok(occupancyIngestionService.getStats());
+    }
+
+    // Spot labels in the ordinal order used by /occupancy-frame
+    @GetMapping("/ordinals")
+    public ResponseEntity<List<String>> getSpotOrdinals() {
+        return ResponseEntity.ok(parkingSpotService.getSpotOrdinals());
+    }
+
+    /**
+     * ADMIN: import a GeoJSON layout (same importer as startup). New labels are inserted;
+     * existing ones are updated unless updateExisting=false.
+     */
+    @PostMapping("/layout")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<LayoutImportResultDTO> importLayout(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(value = "updateExisting", defaultValue = "true") boolean updateExisting
+    ) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(spotLayoutImporter.importLayout(in, updateExisting));
+        }
     }
 
     @PostMapping("/define-corners")
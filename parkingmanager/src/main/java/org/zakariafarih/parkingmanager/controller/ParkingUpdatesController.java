@@ -0,0 +1,24 @@
+package org.zakariafarih.parkingmanager.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+import org.zakariafarih.parkingmanager.payload.ParkingUpdateMessage;
+import org.zakariafarih.parkingmanager.service.ParkingUpdatePublisher;
+
+@Controller
+public class ParkingUpdatesController {
+
+    @Autowired
+    private ParkingUpdatePublisher parkingUpdatePublisher;
+
+    /**
+     * Subscribing to /app/parking-snapshot returns the full lot state once, directly to
+     * the subscriber. Clients subscribe to /topic/parking-updates first, then fetch this
+     * snapshot and drop any delta whose sequence is not greater than the snapshot's.
+     */
+    @SubscribeMapping("/parking-snapshot")
+    public ParkingUpdateMessage snapshot() {
+        return parkingUpdatePublisher.snapshot();
+    }
+}
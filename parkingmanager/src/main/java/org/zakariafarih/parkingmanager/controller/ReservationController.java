@@ -2,17 +2,27 @@
 package org.zakariafarih.parkingmanager.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
 import org.zakariafarih.parkingmanager.model.Reservation;
+import org.zakariafarih.parkingmanager.payload.AvailabilityCacheStatsDTO;
+import org.zakariafarih.parkingmanager.payload.BatchReservationRequest;
+import org.zakariafarih.parkingmanager.payload.BatchReservationResultDTO;
 import org.zakariafarih.parkingmanager.payload.ReservationRequest;
+import org.zakariafarih.parkingmanager.payload.ReservationViewDTO;
 import org.zakariafarih.parkingmanager.security.CustomUserDetails;
+import org.zakariafarih.parkingmanager.service.AvailabilityCache;
 import org.zakariafarih.parkingmanager.service.AvailabilityService;
+import org.zakariafarih.parkingmanager.service.ReservationBatchService;
 import org.zakariafarih.parkingmanager.service.ReservationService;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,12 +31,24 @@ import java.util.Map;
 @RequestMapping("/api/reservations")
 public class ReservationController {
 
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NEXT_CURSORS_HEADER = "X-Next-Cursors";
+    private static final String INVALID_CURSOR = "Invalid cursor: pass the X-Next-Cursor header of the previous page";
+
     @Autowired
     private ReservationService reservationService;
 
     @Autowired
     private AvailabilityService availabilityService;
 
+    @Autowired
+    private ReservationBatchService reservationBatchService;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
     /**
      * Create a new reservation for the authenticated user.
      * Applies role constraints for VIP/PERSONAL spots in the service layer.
@@ -37,7 +59,7 @@ public class ReservationController {
             @RequestBody ReservationRequest request
     ) {
         CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
-        Long userId = principal.getUser().getId();
+        Long userId = principal.getId();
 
         Reservation reservation = reservationService.createReservation(
                 userId,
@@ -45,7 +67,26 @@ public class ReservationController {
                 request.getStartTime(),
                 request.getEndTime()
         );
-        return ResponseEntity.ok(reservation);
+        return ResponseEntity.ok(ReservationViewDTO.from(reservation));
+    }
+
+    /**
+     * Create many reservations for the authenticated user in one call.
+     * allOrNothing=true (default) creates all of them or none (409 with per-item errors);
+     * allOrNothing=false creates those that fit and reports the rest.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchReservationResultDTO> createReservations(
+            Authentication authentication,
+            @Valid @RequestBody BatchReservationRequest request
+    ) {
+        CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
+        BatchReservationResultDTO result = reservationBatchService.createReservations(
+                principal.getId(), request.getReservations(), request.isAllOrNothing());
+        if (request.isAllOrNothing() && result.getRejected() > 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+        return ResponseEntity.ok(result);
     }
 
     /**
@@ -54,8 +95,8 @@ public class ReservationController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> cancelReservation(Authentication authentication, @PathVariable Long id) {
         CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
-        Long requestingUserId = principal.getUser().getId();
-        boolean isAdmin = principal.getUser().getRole().name().equals("ROLE_ADMIN");
+        Long requestingUserId = principal.getId();
+        boolean isAdmin = principal.getRole().name().equals("ROLE_ADMIN");
 
         reservationService.cancelReservation(id, requestingUserId, isAdmin);
         return ResponseEntity.ok("Reservation cancelled successfully");
@@ -65,7 +106,7 @@ public class ReservationController {
      * Get all reservations in the system (for demonstration).
      */
     @GetMapping
-    public ResponseEntity<List<Reservation>> getAllReservations() {
+    public ResponseEntity<List<ReservationViewDTO>> getAllReservations() {
         return ResponseEntity.ok(reservationService.getAllReservations());
     }
 
@@ -74,23 +115,41 @@ public class ReservationController {
      * If user is admin, returns an empty list (or do your own logic).
      */
     @GetMapping("/mine")
-    public ResponseEntity<?> getMyReservations(Authentication authentication) {
+    public ResponseEntity<?> getMyReservations(Authentication authentication,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
         CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
-        if (principal.getUser().getRole().name().equals("ROLE_ADMIN")) {
+        if (principal.getRole().name().equals("ROLE_ADMIN")) {
             return ResponseEntity.ok().body(List.of());
         }
+        Cursor after = Cursor.parse(cursor);
+        if (after == null) {
+            return ResponseEntity.badRequest().body(INVALID_CURSOR);
+        }
         Long userId = principal.getId();
-        List<Reservation> myList = reservationService.getReservationsByUserId(userId);
-        return ResponseEntity.ok(myList);
+        int pageSize = pageSize(limit);
+        List<ReservationViewDTO> myList = reservationService.getReservationsByUserId(userId,
+                after.start(), after.id(), pageSize);
+        return withNextCursor(myList, pageSize);
     }
 
     /**
-     * Return reservation history for a given spot (both past and future).
+     * Return reservation history for a given spot (both past and future), oldest first.
+     * Pages are keyed by (startTime, id): pass the X-Next-Cursor header of one page as
+     * ?cursor= to get the next one.
      */
     @GetMapping("/spot-history/{spotId}")
-    public ResponseEntity<List<Reservation>> getSpotHistory(@PathVariable Long spotId) {
-        List<Reservation> history = reservationService.findAllBySpot(spotId);
-        return ResponseEntity.ok(history);
+    public ResponseEntity<?> getSpotHistory(@PathVariable Long spotId,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        Cursor after = Cursor.parse(cursor);
+        if (after == null) {
+            return ResponseEntity.badRequest().body(INVALID_CURSOR);
+        }
+        int pageSize = pageSize(limit);
+        List<ReservationViewDTO> history = reservationService.findAllBySpot(spotId,
+                after.start(), after.id(), pageSize);
+        return withNextCursor(history, pageSize);
     }
 
     /**
@@ -109,6 +168,51 @@ public class ReservationController {
         return ResponseEntity.ok(intervals);
     }
 
+    @GetMapping("/availability-cache-stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<AvailabilityCacheStatsDTO> getAvailabilityCacheStats() {
+        return ResponseEntity.ok(availabilityCache.getStats());
+    }
+
+    /**
+     * Reservation timeline of all spots (or one category) in a single call, as per-spot
+     * slot bitsets. Example:
+     *   GET /api/reservations/availability-matrix?start=...&end=...&slotMinutes=30&category=VIP
+     */
+    @GetMapping("/availability-matrix")
+    public ResponseEntity<?> getAvailabilityMatrix(
+            @RequestParam("start") LocalDateTime start,
+            @RequestParam("end") LocalDateTime end,
+            @RequestParam(value = "slotMinutes", defaultValue = "30") int slotMinutes,
+            @RequestParam(value = "category", required = false) ParkingSpotCategory category
+    ) {
+        if (!end.isAfter(start)) {
+            return ResponseEntity.badRequest().body("End time must be after start time");
+        }
+        return ResponseEntity.ok(availabilityService.getAvailabilityMatrix(start, end, slotMinutes, category));
+    }
+
+    /**
+     * Best free spots for a time window that the logged-in user may reserve.
+     * Example:
+     *   GET /api/reservations/free-spots?start=...&end=...&category=NORMAL&limit=5
+     */
+    @GetMapping("/free-spots")
+    public ResponseEntity<?> findFreeSpots(
+            Authentication authentication,
+            @RequestParam("start") LocalDateTime start,
+            @RequestParam("end") LocalDateTime end,
+            @RequestParam(value = "category", required = false) ParkingSpotCategory category,
+            @RequestParam(value = "limit", defaultValue = "5") int limit
+    ) {
+        if (!end.isAfter(start)) {
+            return ResponseEntity.badRequest().body("End time must be after start time");
+        }
+        CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(availabilityService.findFreeSpots(start, end, category,
+                principal.getRole(), Math.max(1, Math.min(limit, 50))));
+    }
+
     /**
      * ADMIN: Force-cancel a reservation no matter who owns it.
      */
@@ -120,7 +224,7 @@ public class ReservationController {
     }
 
     /**
-     * Get reservations for multiple spots in one call.
+     * Get the first page of reservations (oldest first, up to limit) for multiple spots in one call.
      * Example request:
      *   GET /api/reservations/multi-spot?spotIds=1,2,3
      * Response shape:
@@ -129,16 +233,68 @@ public class ReservationController {
      *     "2": [ {...} ],
      *     "3": []
      *   }
+     * Spots with more reservations are listed in the X-Next-Cursors header as
+     * "spotId=cursor" pairs separated by ';' (e.g. "1=2025-03-01T09:00,42"); continue
+     * each with GET /spot-history/{spotId}?cursor=...
      */
     @GetMapping("/multi-spot")
-    public ResponseEntity<Map<Long, List<Reservation>>> getReservationsForMultipleSpots(
-            @RequestParam List<Long> spotIds
+    public ResponseEntity<Map<Long, List<ReservationViewDTO>>> getReservationsForMultipleSpots(
+            @RequestParam List<Long> spotIds,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit
     ) {
-        Map<Long, List<Reservation>> result = new HashMap<>();
+        int pageSize = pageSize(limit);
+        Map<Long, List<ReservationViewDTO>> result = new HashMap<>();
+        StringBuilder nextCursors = new StringBuilder();
         for (Long sid : spotIds) {
-            List<Reservation> list = reservationService.findAllBySpot(sid);
+            List<ReservationViewDTO> list = reservationService.findAllBySpot(sid, null, null, pageSize);
             result.put(sid, list);
+            if (list.size() == pageSize) {
+                ReservationViewDTO last = list.get(list.size() - 1);
+                if (nextCursors.length() > 0) {
+                    nextCursors.append(';');
+                }
+                nextCursors.append(sid).append('=').append(last.getStartTime()).append(',').append(last.getId());
+            }
         }
-        return ResponseEntity.ok(result);
+        if (nextCursors.length() == 0) {
+            return ResponseEntity.ok(result);
+        }
+        return ResponseEntity.ok().header(NEXT_CURSORS_HEADER, nextCursors.toString()).body(result);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // cursor format: "<startTime>,<id>", e.g. "2025-03-01T09:00,42"; no cursor = first page
+    private record Cursor(LocalDateTime start, Long id) {
+        static final Cursor FIRST = new Cursor(null, null);
+
+        /** Null if the cursor is malformed. */
+        static Cursor parse(String cursor) {
+            if (cursor == null) {
+                return FIRST;
+            }
+            int comma = cursor.indexOf(',');
+            if (comma < 0) {
+                return null;
+            }
+            try {
+                return new Cursor(LocalDateTime.parse(cursor.substring(0, comma)),
+                        Long.parseLong(cursor.substring(comma + 1)));
+            } catch (DateTimeParseException | NumberFormatException ex) {
+                return null;
+            }
+        }
+    }
+
+    private static ResponseEntity<List<ReservationViewDTO>> withNextCursor(List<ReservationViewDTO> page, int pageSize) {
+        if (page.size() < pageSize) {
+            return ResponseEntity.ok(page);
+        }
+        ReservationViewDTO last = page.get(page.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, last.getStartTime() + "," + last.getId())
+                .body(page);
     }
 }
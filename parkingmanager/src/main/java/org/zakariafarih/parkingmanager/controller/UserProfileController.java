@@ -8,6 +8,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.zakariafarih.parkingmanager.model.User;
 import org.zakariafarih.parkingmanager.payload.ApiResponse;
 import org.zakariafarih.parkingmanager.repository.UserRepository;
+import org.zakariafarih.parkingmanager.security.CustomUserDetailsService;
 import org.springframework.security.core.Authentication;
 
 import java.nio.file.Files;
@@ -25,6 +26,9 @@ public class UserProfileController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
     // GET profile endpoint
     @GetMapping("/profile")
     public ResponseEntity<?> getProfile(Authentication authentication) {
@@ -72,6 +76,7 @@ public class UserProfileController {
         }
 
         userRepository.save(user);
+        customUserDetailsService.evictUser(user.getId());
         return ResponseEntity.ok(new ApiResponse(true, "Profile updated successfully"));
     }
 }
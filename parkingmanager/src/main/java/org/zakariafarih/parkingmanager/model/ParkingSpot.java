@@ -2,10 +2,15 @@
 package org.zakariafarih.parkingmanager.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.*;
 
 @Entity
-@Table(name = "parking_spots")
+@Table(name = "parking_spots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_parking_spots_label", columnNames = "label")
+})
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,7 +22,8 @@ public class ParkingSpot {
     private Long id;
 
     /**
-     * The label from GeoJSON (e.g. "1","2","13", etc.).
+     * The label from GeoJSON (e.g. "1","2","13", etc.). Unique: the layout import
+     * matches spots by label.
      */
     private String label;
 
@@ -56,6 +62,12 @@ public class ParkingSpot {
     @Column(columnDefinition = "json")
     private String imageCoordinates;
 
+    /**
+     * The camera (lotId of its detection frames) whose image the imageCoordinates are in.
+     * Null for corners saved before cameras were told apart; those belong to lot 0.
+     */
+    private Integer imageLotId;
+
     public String getLabel() {
         return label;
     }
@@ -5,7 +5,11 @@ import java.time.LocalDateTime;
 import lombok.*;
 
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_spot_start", columnList = "parking_spot_id, start_time"),
+        @Index(name = "idx_reservations_user_start", columnList = "user_id, start_time"),
+        @Index(name = "idx_reservations_end", columnList = "end_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
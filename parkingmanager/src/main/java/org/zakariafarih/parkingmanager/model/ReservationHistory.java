@@ -0,0 +1,40 @@
+package org.zakariafarih.parkingmanager.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+
+/**
+ * Completed reservation moved out of {@code reservations} by the archiver.
+ * Keeps the original reservation id.
+ */
+@Entity
+@Table(name = "reservation_history", indexes = {
+        @Index(name = "idx_reservation_history_spot_start", columnList = "parking_spot_id, start_time"),
+        @Index(name = "idx_reservation_history_user_start", columnList = "user_id, start_time")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationHistory {
+    @Id
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne
+    @JoinColumn(name = "parking_spot_id", nullable = false)
+    private ParkingSpot parkingSpot;
+
+    @Column(nullable = false)
+    private LocalDateTime startTime;
+
+    @Column(nullable = false)
+    private LocalDateTime endTime;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,18 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Counters of the availability result cache.
+ */
+@Data
+@AllArgsConstructor
+public class AvailabilityCacheStatsDTO {
+    private int size;
+    private int maxEntries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+}
@@ -0,0 +1,36 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reservation timeline of many spots at once.
+ * Slot i covers [start + i * slotMinutes, start + (i + 1) * slotMinutes).
+ * {@code reserved} is a base64 bitset (bit i % 8 of byte i / 8 = slot i) with a bit set
+ * for every slot touched by a reservation; missing trailing bytes are zero.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityMatrixDTO {
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private int slotMinutes;
+    private int slotCount;
+    private List<SpotRow> spots;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SpotRow {
+        private Long id;
+        private String label;
+        private ParkingSpotCategory category;
+        private String reserved;
+    }
+}
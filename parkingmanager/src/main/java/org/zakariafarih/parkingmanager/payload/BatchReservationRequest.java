@@ -0,0 +1,17 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchReservationRequest {
+    @NotEmpty
+    @Valid
+    private List<ReservationRequest> reservations;
+
+    // true: create every reservation or none; false: create the ones that fit and report the rest
+    private boolean allOrNothing = true;
+}
@@ -0,0 +1,27 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReservationResultDTO {
+    private int created;
+    private int rejected;
+    // one entry per request, in request order
+    private List<Item> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private Long parkingSpotId;
+        private Long reservationId; // null if not created
+        private String error;       // null if created
+    }
+}
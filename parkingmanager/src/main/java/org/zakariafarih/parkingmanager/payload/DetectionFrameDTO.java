@@ -0,0 +1,18 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.Data;
+
+/**
+ * Raw vehicle detections of one camera frame, matched to spots on the server.
+ */
+@Data
+public class DetectionFrameDTO {
+    // camera / feeder id: frames are queued and sequenced per lotId
+    private int lotId;
+
+    // increasing per lotId, or -1 if the camera does not number its frames
+    private long sequence = -1;
+
+    // flattened [x1, y1, x2, y2, ...] vehicle boxes in image pixels
+    private double[] boxes = new double[0];
+}
@@ -0,0 +1,17 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+
+/**
+ * A spot free for the requested window; lower slack means a tighter fit.
+ */
+@Data
+@AllArgsConstructor
+public class FreeSpotDTO {
+    private Long id;
+    private String label;
+    private ParkingSpotCategory category;
+    private long slackMinutes;
+}
@@ -0,0 +1,22 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Hibernate statistics since the last reset: SQL statements issued and
+ * second-level / query cache effectiveness.
+ */
+@Data
+@AllArgsConstructor
+public class HibernateStatsDTO {
+    private long preparedStatements;
+    private long queryExecutions;
+    private long entityLoads;
+    private long entityFetches;
+    private long secondLevelCacheHits;
+    private long secondLevelCacheMisses;
+    private long secondLevelCachePuts;
+    private long queryCacheHits;
+    private long queryCacheMisses;
+}
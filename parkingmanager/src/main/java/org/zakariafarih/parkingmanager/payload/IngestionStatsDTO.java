@@ -0,0 +1,20 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Counters of one lot's occupancy ingestion queue.
+ */
+@Data
+@AllArgsConstructor
+public class IngestionStatsDTO {
+    private int lotId;
+    private int queueDepth;
+    private long framesAccepted;
+    private long framesCoalesced;
+    private long framesDropped;
+    private long framesStale;
+    private long flushes;
+    private long transitionsSuppressed;
+}
@@ -0,0 +1,18 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of a GeoJSON layout import.
+ */
+@Data
+@AllArgsConstructor
+public class LayoutImportResultDTO {
+    private int features;
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private int skipped; // features without a spot_id
+    private long elapsedMillis;
+}
@@ -0,0 +1,22 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+
+/**
+ * Spot without its geometry columns (coordinates, imageCoordinates).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingSpotSummaryDTO {
+    private Long id;
+    private String label;
+    private ParkingStatus status;
+    private ParkingSpotCategory category;
+    private boolean occupied;
+    private boolean controlled;
+}
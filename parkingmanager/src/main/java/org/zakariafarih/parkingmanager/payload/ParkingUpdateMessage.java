@@ -0,0 +1,27 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Versioned message on /topic/parking-updates.
+ * A SNAPSHOT carries every spot, a DELTA only the spots that changed.
+ * Clients apply a DELTA only if its sequence is greater than the last one they applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingUpdateMessage {
+
+    public enum Type {
+        SNAPSHOT,
+        DELTA
+    }
+
+    private Type type;
+    private long sequence;
+    private List<SpotStateDTO> spots;
+}
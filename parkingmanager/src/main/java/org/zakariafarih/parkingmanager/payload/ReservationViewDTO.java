@@ -0,0 +1,57 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.Reservation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model for reservation lists: only what the UI renders, built directly by JPQL
+ * constructor expressions (no User/ParkingSpot entities, password or geometry).
+ * Keeps the {@code user.id/email} and {@code parkingSpot.id/label} shape of the entity JSON.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationViewDTO {
+    private Long id;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private UserRef user;
+    private SpotRef parkingSpot;
+
+    public ReservationViewDTO(Long id, LocalDateTime startTime, LocalDateTime endTime,
+                              Long userId, String userEmail, String userName,
+                              Long spotId, String spotLabel, ParkingSpotCategory spotCategory) {
+        this(id, startTime, endTime,
+                new UserRef(userId, userEmail, userName),
+                new SpotRef(spotId, spotLabel, spotCategory));
+    }
+
+    public static ReservationViewDTO from(Reservation r) {
+        return new ReservationViewDTO(r.getId(), r.getStartTime(), r.getEndTime(),
+                r.getUser().getId(), r.getUser().getEmail(), r.getUser().getName(),
+                r.getParkingSpot().getId(), r.getParkingSpot().getLabel(), r.getParkingSpot().getCategory());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UserRef {
+        private Long id;
+        private String email;
+        private String name;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SpotRef {
+        private Long id;
+        private String label;
+        private ParkingSpotCategory category;
+    }
+}
@@ -6,5 +6,9 @@ import java.util.List;
 @Data
 public class SpotCornerDTO {
     private long spotId;
+
+    // camera whose image the corners are in (the lotId of its detection frames)
+    private int lotId;
+
     private List<List<Integer>> corners;
 }
@@ -0,0 +1,26 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+
+/**
+ * A spot found by a spatial query. Coordinates are in the layer's coordinate space
+ * (lon = x, lat = y); {@code coordinates} is only set for viewport queries and
+ * {@code distance} only for nearest-spot queries.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SpotLocationDTO {
+    private Long id;
+    private String label;
+    private ParkingStatus status;
+    private ParkingSpotCategory category;
+    private double centerLon;
+    private double centerLat;
+    private String coordinates;
+    private Double distance;
+}
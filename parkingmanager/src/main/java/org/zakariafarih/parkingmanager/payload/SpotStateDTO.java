@@ -0,0 +1,18 @@
+package org.zakariafarih.parkingmanager.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+
+/**
+ * Minimal per-spot state pushed over WebSocket (no geometry).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpotStateDTO {
+    private String label;
+    private ParkingStatus status;
+    private boolean occupied;
+}
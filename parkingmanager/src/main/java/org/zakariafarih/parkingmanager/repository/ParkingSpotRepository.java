@@ -1,9 +1,39 @@
 package org.zakariafarih.parkingmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.zakariafarih.parkingmanager.model.ParkingSpot;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long> {
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO(" +
+            "p.id, p.label, p.status, p.category, p.occupied, p.controlled) FROM ParkingSpot p ORDER BY p.id")
+    List<ParkingSpotSummaryDTO> findSummaryViews();
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO(" +
+            "p.id, p.label, p.status, p.category, p.occupied, p.controlled) FROM ParkingSpot p " +
+            "WHERE p.category = :category ORDER BY p.id")
+    List<ParkingSpotSummaryDTO> findSummaryViewsByCategory(@Param("category") ParkingSpotCategory category);
+
+    /**
+     * Rows of [id, label, coordinates, imageCoordinates, imageLotId] ordered by id.
+     */
+    @Query("SELECT p.id, p.label, p.coordinates, p.imageCoordinates, p.imageLotId FROM ParkingSpot p ORDER BY p.id")
+    List<Object[]> findGeometries();
+
+    /**
+     * Row-locks the given spots (in id order, so concurrent lockers cannot deadlock) until
+     * the surrounding transaction ends. Serializes reservation inserts per spot across
+     * every application instance.
+     */
+    @Query(value = "SELECT id FROM parking_spots WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockByIds(@Param("ids") Collection<Long> ids);
 }
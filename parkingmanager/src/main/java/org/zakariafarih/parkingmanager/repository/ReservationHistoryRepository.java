@@ -0,0 +1,47 @@
+package org.zakariafarih.parkingmanager.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.zakariafarih.parkingmanager.model.ReservationHistory;
+import org.zakariafarih.parkingmanager.payload.ReservationViewDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReservationHistoryRepository extends JpaRepository<ReservationHistory, Long> {
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ReservationViewDTO(" +
+            "r.id, r.startTime, r.endTime, u.id, u.email, u.name, p.id, p.label, p.category) " +
+            "FROM ReservationHistory r JOIN r.user u JOIN r.parkingSpot p " +
+            "WHERE u.id = :userId " +
+            "AND (r.startTime > :afterStart OR (r.startTime = :afterStart AND r.id > :afterId)) " +
+            "ORDER BY r.startTime, r.id")
+    List<ReservationViewDTO> findPageByUser(@Param("userId") Long userId,
+                                            @Param("afterStart") LocalDateTime afterStart,
+                                            @Param("afterId") Long afterId,
+                                            Pageable page);
+
+    /**
+     * Rows of [spotId, startTime, endTime] for archived reservations intersecting [from, to],
+     * ordered by spot and start time; the archive side of
+     * {@link ReservationRepository#findIntervalsBetween}.
+     */
+    @Query("SELECT r.parkingSpot.id, r.startTime, r.endTime FROM ReservationHistory r " +
+            "WHERE r.endTime > :from AND r.startTime < :to ORDER BY r.parkingSpot.id, r.startTime")
+    List<Object[]> findIntervalsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ReservationViewDTO(" +
+            "r.id, r.startTime, r.endTime, u.id, u.email, u.name, p.id, p.label, p.category) " +
+            "FROM ReservationHistory r JOIN r.user u JOIN r.parkingSpot p " +
+            "WHERE p.id = :spotId " +
+            "AND (r.startTime > :afterStart OR (r.startTime = :afterStart AND r.id > :afterId)) " +
+            "ORDER BY r.startTime, r.id")
+    List<ReservationViewDTO> findPageBySpot(@Param("spotId") Long spotId,
+                                            @Param("afterStart") LocalDateTime afterStart,
+                                            @Param("afterId") Long afterId,
+                                            Pageable page);
+}
@@ -1,14 +1,80 @@
 package org.zakariafarih.parkingmanager.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.zakariafarih.parkingmanager.model.Reservation;
+import org.zakariafarih.parkingmanager.payload.ReservationViewDTO;
 import org.zakariafarih.parkingmanager.model.ParkingSpot;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
     List<Reservation> findByParkingSpotAndEndTimeAfter(ParkingSpot parkingSpot, LocalDateTime now);
     List<Reservation> findByParkingSpot(ParkingSpot parkingSpot);
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ReservationViewDTO(" +
+            "r.id, r.startTime, r.endTime, u.id, u.email, u.name, p.id, p.label, p.category) " +
+            "FROM Reservation r JOIN r.user u JOIN r.parkingSpot p " +
+            "WHERE u.id = :userId " +
+            "AND (r.startTime > :afterStart OR (r.startTime = :afterStart AND r.id > :afterId)) " +
+            "ORDER BY r.startTime, r.id")
+    List<ReservationViewDTO> findPageByUser(@Param("userId") Long userId,
+                                     @Param("afterStart") LocalDateTime afterStart,
+                                     @Param("afterId") Long afterId,
+                                     Pageable page);
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ReservationViewDTO(" +
+            "r.id, r.startTime, r.endTime, u.id, u.email, u.name, p.id, p.label, p.category) " +
+            "FROM Reservation r JOIN r.user u JOIN r.parkingSpot p " +
+            "WHERE p.id = :spotId " +
+            "AND (r.startTime > :afterStart OR (r.startTime = :afterStart AND r.id > :afterId)) " +
+            "ORDER BY r.startTime, r.id")
+    List<ReservationViewDTO> findPageBySpot(@Param("spotId") Long spotId,
+                                     @Param("afterStart") LocalDateTime afterStart,
+                                     @Param("afterId") Long afterId,
+                                     Pageable page);
+
+    /**
+     * Rows of [reservationId, spotId, startTime, endTime] for reservations ending after {@code after},
+     * ordered by start time. Used to build the in-memory interval index without loading entities.
+     */
+    @Query("SELECT r.id, r.parkingSpot.id, r.startTime, r.endTime FROM Reservation r " +
+            "WHERE r.endTime > :after ORDER BY r.startTime")
+    List<Object[]> findIntervalsEndingAfter(@Param("after") LocalDateTime after);
+
+    /**
+     * Rows of [spotId, startTime, endTime] for reservations intersecting [from, to],
+     * ordered by spot and start time.
+     */
+    @Query("SELECT r.parkingSpot.id, r.startTime, r.endTime FROM Reservation r " +
+            "WHERE r.endTime > :from AND r.startTime < :to ORDER BY r.parkingSpot.id, r.startTime")
+    List<Object[]> findIntervalsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Rows of [spotId, startTime, endTime] of the given spots' reservations overlapping
+     * [from, to) (half-open), ordered by spot and start time. The commit-time overlap check.
+     */
+    @Query("SELECT r.parkingSpot.id, r.startTime, r.endTime FROM Reservation r " +
+            "WHERE r.parkingSpot.id IN :spotIds AND r.endTime > :from AND r.startTime < :to " +
+            "ORDER BY r.parkingSpot.id, r.startTime")
+    List<Object[]> findIntervalsOfSpotsBetween(@Param("spotIds") Collection<Long> spotIds,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
+
+    @Query("SELECT COUNT(r) > 0 FROM Reservation r " +
+            "WHERE r.parkingSpot.id = :spotId AND r.endTime > :start AND r.startTime < :end")
+    boolean existsOverlapping(@Param("spotId") Long spotId,
+                              @Param("start") LocalDateTime start,
+                              @Param("end") LocalDateTime end);
+
+    @Query("SELECT new org.zakariafarih.parkingmanager.payload.ReservationViewDTO(" +
+            "r.id, r.startTime, r.endTime, u.id, u.email, u.name, p.id, p.label, p.category) " +
+            "FROM Reservation r JOIN r.user u JOIN r.parkingSpot p " +
+            "ORDER BY r.id")
+    List<ReservationViewDTO> findAllViews();
 }
@@ -0,0 +1,44 @@
+package org.zakariafarih.parkingmanager.security;
+
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bucket lookup and 429 response shared by the rate limiting filters. Buckets live in
+ * Redis when distributed limiting is on ({@link RedisRateLimiter}), so the limits hold
+ * across all instances; otherwise, or while Redis is down, in the local
+ * {@link RateLimitBucketStore}.
+ */
+abstract class AbstractRateLimitingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitBucketStore bucketStore;
+
+    @Autowired
+    private RedisRateLimiter redisRateLimiter;
+
+    /**
+     * Takes one token from the client's bucket; if none is left, writes the 429 response.
+     *
+     * @return true if the request may go on.
+     */
+    protected boolean allow(RateLimitPolicy policy, String client, HttpServletResponse response) throws IOException {
+        ConsumptionProbe probe = redisRateLimiter.tryConsume(policy, client);
+        if (probe == null) {
+            probe = bucketStore.tryConsume(policy, client);
+        }
+        if (probe.isConsumed()) {
+            return true;
+        }
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()));
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.getWriter().write("Too Many Requests");
+        return false;
+    }
+}
@@ -3,6 +3,7 @@ package org.zakariafarih.parkingmanager.security;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.zakariafarih.parkingmanager.model.Role;
 import org.zakariafarih.parkingmanager.model.User;
 import java.util.Collection;
 import java.util.Collections;
@@ -12,6 +13,7 @@ public class CustomUserDetails implements UserDetails {
     private final Long id;
     private final String email;
     private final String password;
+    private final Role role;
     private final Collection<? extends GrantedAuthority> authorities;
 
     public CustomUserDetails(User user) {
@@ -19,11 +21,24 @@ public class CustomUserDetails implements UserDetails {
         this.id = user.getId();
         this.email = user.getEmail();
         this.password = user.getPassword();
+        this.role = user.getRole();
         this.authorities = Collections.singletonList(new SimpleGrantedAuthority(user.getRole().name()));
     }
 
     /**
-     * Returns the original User object.
+     * Lightweight principal for a request authenticated by JWT (no User entity, no password).
+     */
+    public CustomUserDetails(Long id, String email, Role role) {
+        this.user = null;
+        this.id = id;
+        this.email = email;
+        this.password = null;
+        this.role = role;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority(role.name()));
+    }
+
+    /**
+     * Returns the original User object (only set at login; null for JWT-authenticated requests).
      *
      * @return the User object associated with this user details.
      */
@@ -40,6 +55,10 @@ public class CustomUserDetails implements UserDetails {
         return id;
     }
 
+    public Role getRole() {
+        return role;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -1,19 +1,41 @@
 package org.zakariafarih.parkingmanager.security;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
+import org.zakariafarih.parkingmanager.model.Role;
 import org.zakariafarih.parkingmanager.model.User;
 import org.zakariafarih.parkingmanager.repository.UserRepository;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
     private UserRepository userRepository;
 
+    /**
+     * How long a JWT principal's role/email is trusted before being re-read from the DB.
+     * 0 trusts the token's claims alone (no DB access at all): a role change or deleted
+     * user then only takes effect when the token expires.
+     */
+    @Value("${parking.security.user-cache-ttl-seconds:60}")
+    private long userCacheTtlSeconds;
+
+    @Value("${parking.security.user-cache-max-entries:10000}")
+    private int maxCachedUsers;
+
+    private record CachedUser(String email, Role role, long expiresAt) {
+    }
+
+    private final ConcurrentHashMap<Long, CachedUser> users = new ConcurrentHashMap<>();
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
@@ -30,4 +52,63 @@ public class CustomUserDetailsService implements UserDetailsService {
                 );
         return new CustomUserDetails(user);
     }
+
+    /**
+     * Builds the principal for a verified token. With the user cache on, role and email come
+     * from a short-lived per-user entry (so role changes and deleted users take effect within
+     * the TTL, or at once after {@link #evictUser}); otherwise straight from the claims.
+     *
+     * @return the principal, or null if the user no longer exists.
+     */
+    public CustomUserDetails loadUserFromClaims(Claims claims) {
+        Long id = Long.parseLong(claims.getSubject());
+        String email = claims.get("email", String.class);
+        String role = claims.get("role", String.class);
+        if (userCacheTtlSeconds <= 0 && email != null && role != null) {
+            return new CustomUserDetails(id, email, Role.valueOf(role));
+        }
+        long now = System.currentTimeMillis();
+        CachedUser cached = users.get(id);
+        if (cached == null || cached.expiresAt() < now) {
+            User user = userRepository.findById(id).orElse(null);
+            if (user == null) {
+                users.remove(id);
+                return null;
+            }
+            cached = new CachedUser(user.getEmail(), user.getRole(),
+                    now + Math.max(userCacheTtlSeconds, 0) * 1000);
+            if (userCacheTtlSeconds > 0) {
+                if (users.size() >= maxCachedUsers) {
+                    trim(now);
+                }
+                users.put(id, cached);
+            }
+        }
+        return new CustomUserDetails(id, cached.email(), cached.role());
+    }
+
+    /**
+     * Makes room in a full cache: drops expired entries, then, if that freed less than a
+     * tenth of it, the entries closest to expiry (with one TTL for all, the oldest ones)
+     * until a tenth is free, so the scan runs once per many misses rather than on each.
+     */
+    private void trim(long now) {
+        users.values().removeIf(entry -> entry.expiresAt() < now);
+        int target = maxCachedUsers - Math.max(1, maxCachedUsers / 10);
+        long[] expiries = users.values().stream().mapToLong(CachedUser::expiresAt).toArray();
+        int excess = expiries.length - target;
+        if (excess > 0) {
+            Arrays.sort(expiries);
+            long cutoff = expiries[excess - 1];
+            users.values().removeIf(entry -> entry.expiresAt() <= cutoff);
+        }
+    }
+
+    /**
+     * Drops a user's cached role/email; call after saving or deleting a user, so role and
+     * email changes apply to their next request.
+     */
+    public void evictUser(Long id) {
+        users.remove(id);
+    }
 }
@@ -1,5 +1,6 @@
 package org.zakariafarih.parkingmanager.security;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import jakarta.servlet.FilterChain;
@@ -31,9 +32,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (jwt != null && tokenProvider.validateToken(jwt)) {
-                Long userId = tokenProvider.getUserIdFromJWT(jwt);
-                CustomUserDetails userDetails = (CustomUserDetails) customUserDetailsService.loadUserById(userId);
+            Claims claims = jwt == null ? null : tokenProvider.parseClaims(jwt);
+            CustomUserDetails userDetails = claims == null ? null : customUserDetailsService.loadUserFromClaims(claims);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new org.springframework.security.web.authentication.WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,110 @@
+package org.zakariafarih.parkingmanager.security;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process token buckets, bounded in size and expired when idle.
+ *
+ * Buckets sit in a {@link ConcurrentHashMap} and are looked up or created with
+ * {@code compute}, so requests of different clients never wait on each other. A background
+ * sweep every {@code parking.rate-limit.sweep-seconds} drops buckets idle for longer than
+ * their refill period (such a bucket is full again, so dropping it changes nothing). If
+ * {@code parking.rate-limit.max-buckets} is exceeded in between, the request that notices
+ * runs the same sweep, which then also drops the least recently used buckets down to
+ * the bound. Memory therefore stays flat however many distinct IPs show up.
+ */
+@Component
+public class RateLimitBucketStore {
+
+    private static final class Entry {
+        final Bucket bucket;
+        volatile long lastAccessNanos;
+
+        Entry(Bucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final int maxBuckets;
+    private final long idleNanos;
+    private final ScheduledExecutorService sweeper;
+
+    public RateLimitBucketStore(@Value("${parking.rate-limit.max-buckets:100000}") int maxBuckets,
+                                @Value("${parking.rate-limit.idle-expiry-minutes:10}") long idleExpiryMinutes,
+                                @Value("${parking.rate-limit.sweep-seconds:60}") long sweepSeconds) {
+        this.maxBuckets = maxBuckets;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleExpiryMinutes);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limit-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Takes one token from the client's bucket for the policy (creating it if needed).
+     */
+    public ConsumptionProbe tryConsume(RateLimitPolicy policy, String client) {
+        long now = System.nanoTime();
+        Entry entry = buckets.compute(policy.key(client), (key, existing) -> {
+            Entry e = existing != null ? existing : new Entry(policy.newBucket());
+            e.lastAccessNanos = now;
+            return e;
+        });
+        if (buckets.size() > maxBuckets) {
+            sweep();
+        }
+        return entry.bucket.tryConsumeAndReturnRemaining(1);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Drops idle buckets, then the least recently used ones while above max-buckets.
+     * Runs on one thread at a time; a caller finding a sweep in progress just returns.
+     */
+    void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            buckets.values().removeIf(e -> now - e.lastAccessNanos >= idleNanos);
+            long[] accessTimes = buckets.size() > maxBuckets
+                    ? buckets.values().stream().mapToLong(e -> e.lastAccessNanos - now).toArray()
+                    : new long[0];
+            int excess = accessTimes.length - maxBuckets;
+            if (excess > 0) {
+                Arrays.sort(accessTimes);
+                long cutoff = accessTimes[excess - 1] + now;
+                for (String key : buckets.keySet()) {
+                    // re-checked under the key's lock: a bucket used meanwhile stays
+                    buckets.computeIfPresent(key, (k, e) -> e.lastAccessNanos - cutoff <= 0 ? null : e);
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,35 @@
+package org.zakariafarih.parkingmanager.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * A named request budget: {@code perMinute} requests per minute, refilled greedily.
+ * Buckets are keyed by policy name plus client (user id or IP), so each policy
+ * has its own budget per client.
+ */
+public record RateLimitPolicy(String name, long perMinute) {
+
+    public Bucket newBucket() {
+        return Bucket.builder().addLimit(limit()).build();
+    }
+
+    /**
+     * The same limit as a configuration for a distributed (Redis) bucket.
+     */
+    public BucketConfiguration configuration() {
+        return BucketConfiguration.builder().addLimit(limit()).build();
+    }
+
+    private Bandwidth limit() {
+        return Bandwidth.classic(perMinute, Refill.greedy(perMinute, Duration.ofMinutes(1)));
+    }
+
+    public String key(String client) {
+        return name + ':' + client;
+    }
+}
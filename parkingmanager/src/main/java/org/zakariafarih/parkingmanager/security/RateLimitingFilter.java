@@ -1,41 +1,70 @@
 package org.zakariafarih.parkingmanager.security;
 
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Refill;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.filter.OncePerRequestFilter;
+
 import java.io.IOException;
-import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 
+/**
+ * Per-IP rate limiting, run before JWT authentication so floods are turned away before
+ * any token is parsed or any user is loaded:
+ *  - trusted clients (parking.rate-limit.trusted-clients, e.g. the CV feeder host): not limited;
+ *  - ingestion routes (occupancy/detection feeds): high-rate tier, per IP;
+ *  - /api/auth/**: strict tier per IP, against credential stuffing;
+ *  - everything else: a coarse per-IP cap, then the per-caller limits of
+ *    {@link UserRateLimitingFilter} once the caller is known.
+ */
 @Component
-public class RateLimitingFilter extends OncePerRequestFilter {
+public class RateLimitingFilter extends AbstractRateLimitingFilter {
+
+    /** Set on requests that {@link UserRateLimitingFilter} still has to limit per caller. */
+    static final String PER_CALLER_ATTRIBUTE = RateLimitingFilter.class.getName() + ".perCaller";
+
+    private static final Set<String> INGESTION_PATHS = Set.of(
+            "/api/parking/python-occupancies", "/api/parking/occupancy-frame",
+            "/api/parking/detections", "/api/parking/auto", "/api/parking/update-status");
+
+    @Value("#{'${parking.rate-limit.trusted-clients:}'.split(',')}")
+    private Set<String> trustedClients;
 
-    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitPolicy ip;
+    private final RateLimitPolicy auth;
+    private final RateLimitPolicy ingestion;
 
-    private Bucket createNewBucket() {
-        // Allow 100 requests per minute per IP
-        Bandwidth limit = Bandwidth.classic(100, Refill.greedy(100, Duration.ofMinutes(1)));
-        return Bucket.builder().addLimit(limit).build();
+    public RateLimitingFilter(@Value("${parking.rate-limit.ip-per-minute:1200}") long ipPerMinute,
+                              @Value("${parking.rate-limit.auth-per-minute:20}") long authPerMinute,
+                              @Value("${parking.rate-limit.ingestion-per-minute:6000}") long ingestionPerMinute) {
+        this.ip = new RateLimitPolicy("ip", ipPerMinute);
+        this.auth = new RateLimitPolicy("auth", authPerMinute);
+        this.ingestion = new RateLimitPolicy("ingestion", ingestionPerMinute);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        String ip = request.getRemoteAddr();
-        Bucket bucket = buckets.computeIfAbsent(ip, k -> createNewBucket());
-
-        if (bucket.tryConsume(1)) {
+        String address = request.getRemoteAddr();
+        if (trustedClients.contains(address)) {
             filterChain.doFilter(request, response);
+            return;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean allowed;
+        if (INGESTION_PATHS.contains(path)) {
+            allowed = allow(ingestion, address, response);
+        } else if (path.startsWith("/api/auth/")) {
+            allowed = allow(auth, address, response);
         } else {
-            response.setStatus(429);
-            response.getWriter().write("Too Many Requests");
+            allowed = allow(ip, address, response);
+            request.setAttribute(PER_CALLER_ATTRIBUTE, Boolean.TRUE);
+        }
+        if (allowed) {
+            filterChain.doFilter(request, response);
         }
     }
 }
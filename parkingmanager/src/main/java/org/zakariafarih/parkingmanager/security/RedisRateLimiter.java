@@ -0,0 +1,132 @@
+package org.zakariafarih.parkingmanager.security;
+
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cluster-wide token buckets kept in Redis (bucket4j's Lettuce compare-and-swap proxy),
+ * so every backend instance draws from the same budget per client.
+ *
+ * Connects through the Lettuce client of Spring's Redis connection factory, so the
+ * spring.data.redis.* settings (password, SSL, database, sentinels, timeouts) apply as for
+ * every other Redis use; only the command timeout is tightened for this connection.
+ *
+ * Off unless {@code parking.rate-limit.redis.enabled=true}. When Redis cannot be reached
+ * or does not answer within the timeout, {@link #tryConsume} returns null and the caller
+ * falls back to its in-process buckets; Redis is tried again after
+ * {@code parking.rate-limit.redis.retry-seconds}.
+ */
+@Component
+public class RedisRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+    private static final String KEY_PREFIX = "rate-limit:";
+
+    private final boolean enabled;
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final Duration timeout;
+    private final long retryMillis;
+
+    private StatefulRedisConnection<String, byte[]> connection;
+    private volatile ProxyManager<String> proxyManager;
+    private volatile long retryAt;
+
+    public RedisRateLimiter(@Value("${parking.rate-limit.redis.enabled:false}") boolean enabled,
+                            ObjectProvider<RedisConnectionFactory> connectionFactory,
+                            @Value("${parking.rate-limit.redis.timeout-ms:200}") long timeoutMillis,
+                            @Value("${parking.rate-limit.redis.retry-seconds:30}") long retrySeconds) {
+        this.enabled = enabled;
+        this.connectionFactory = connectionFactory;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.retryMillis = retrySeconds * 1000;
+    }
+
+    /**
+     * Takes one token from the client's shared bucket for the policy.
+     *
+     * @return the result, or null if distributed limiting is off or Redis is unavailable.
+     */
+    public ConsumptionProbe tryConsume(RateLimitPolicy policy, String client) {
+        if (!enabled || System.currentTimeMillis() < retryAt) {
+            return null;
+        }
+        try {
+            return proxyManager().builder()
+                    .build(KEY_PREFIX + policy.key(client), policy::configuration)
+                    .tryConsumeAndReturnRemaining(1);
+        } catch (RuntimeException ex) {
+            markUnavailable(ex);
+            return null;
+        }
+    }
+
+    private ProxyManager<String> proxyManager() {
+        ProxyManager<String> manager = proxyManager;
+        if (manager == null) {
+            synchronized (this) {
+                manager = proxyManager;
+                if (manager == null) {
+                    connection = nativeClient().connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+                    connection.setTimeout(timeout);
+                    // keys live only as long as the bucket takes to refill
+                    manager = LettuceBasedProxyManager.builderFor(connection)
+                            .withExpirationStrategy(ExpirationAfterWriteStrategy
+                                    .basedOnTimeForRefillingBucketUpToMax(Duration.ofSeconds(10)))
+                            .build();
+                    proxyManager = manager;
+                    logger.info("Distributed rate limiting connected to Redis");
+                }
+            }
+        }
+        return manager;
+    }
+
+    private RedisClient nativeClient() {
+        if (!(connectionFactory.getIfAvailable() instanceof LettuceConnectionFactory lettuce)) {
+            throw new IllegalStateException("no Lettuce Redis connection factory configured");
+        }
+        AbstractRedisClient client = lettuce.getNativeClient();
+        if (!(client instanceof RedisClient redisClient)) {
+            // a cluster client has no single-node connection for the CAS proxy
+            throw new IllegalStateException("Redis client " + client + " is not a standalone/sentinel client");
+        }
+        return redisClient;
+    }
+
+    private synchronized void markUnavailable(RuntimeException ex) {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        logger.warn("Redis rate limiting unavailable ({}), using local buckets for {} s",
+                ex.getMessage(), retryMillis / 1000);
+        // a failed connect leaves proxyManager unset, so the next attempt reconnects;
+        // an established connection reconnects on its own
+        retryAt = System.currentTimeMillis() + retryMillis;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        // the client itself belongs to the connection factory
+        if (connection != null) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.zakariafarih.parkingmanager.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.zakariafarih.parkingmanager.model.Role;
+
+import java.io.IOException;
+
+/**
+ * Per-caller rate limiting, run after JWT authentication on the requests
+ * {@link RateLimitingFilter} passed on for it:
+ *  - authenticated requests: per user, with a higher budget for admins;
+ *  - everything else: per IP.
+ */
+@Component
+public class UserRateLimitingFilter extends AbstractRateLimitingFilter {
+
+    private final RateLimitPolicy anonymous;
+    private final RateLimitPolicy user;
+    private final RateLimitPolicy admin;
+
+    public UserRateLimitingFilter(@Value("${parking.rate-limit.anonymous-per-minute:100}") long anonymousPerMinute,
+                                  @Value("${parking.rate-limit.user-per-minute:300}") long userPerMinute,
+                                  @Value("${parking.rate-limit.admin-per-minute:1000}") long adminPerMinute) {
+        this.anonymous = new RateLimitPolicy("anonymous", anonymousPerMinute);
+        this.user = new RateLimitPolicy("user", userPerMinute);
+        this.admin = new RateLimitPolicy("admin", adminPerMinute);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (request.getAttribute(RateLimitingFilter.PER_CALLER_ATTRIBUTE) == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean allowed;
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails principal) {
+            RateLimitPolicy policy = principal.getRole() == Role.ROLE_ADMIN ? admin : user;
+            allowed = allow(policy, String.valueOf(principal.getId()), response);
+        } else {
+            allowed = allow(anonymous, request.getRemoteAddr(), response);
+        }
+        if (allowed) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zakariafarih.parkingmanager.payload.AvailabilityCacheStatsDTO;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, approximately LRU cache of free intervals keyed by spot and window (whole minutes).
+ *
+ * Invalidation is per spot and O(1): every spot has a version that is bumped when one of
+ * its reservations is added or removed. An entry computed under an older version is
+ * removed by the lookup that finds it. Entries sit in a {@link ConcurrentHashMap}, so
+ * lookups never wait on each other; the request that pushes the cache past
+ * {@code parking.availability-cache.max-entries} sweeps it, dropping stale entries and
+ * then the least recently used ones down to 90% of the bound.
+ */
+@Component
+public class AvailabilityCache {
+
+    private record Key(long spotId, long startMinute, long endMinute) {
+    }
+
+    private static final class Entry {
+        final long version;
+        final List<AvailabilityService.TimeInterval> free;
+        volatile long lastAccess;
+
+        Entry(long version, List<AvailabilityService.TimeInterval> free, long lastAccess) {
+            this.version = version;
+            this.free = free;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final int maxEntries;
+
+    public AvailabilityCache(@Value("${parking.availability-cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Cached free intervals of the spot in [startMinute, endMinute] (epoch minutes),
+     * computing and storing them on a miss.
+     */
+    List<AvailabilityService.TimeInterval> get(long spotId, long startMinute, long endMinute,
+                                               Supplier<List<AvailabilityService.TimeInterval>> compute) {
+        Key key = new Key(spotId, startMinute, endMinute);
+        long version = versions.getOrDefault(spotId, 0L);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.version == version) {
+                entry.lastAccess = clock.incrementAndGet();
+                hits.incrementAndGet();
+                return entry.free;
+            }
+            // only removes the stale entry, never one a concurrent miss just stored
+            entries.remove(key, entry);
+        }
+        misses.incrementAndGet();
+        List<AvailabilityService.TimeInterval> free = List.copyOf(compute.get());
+        entries.put(key, new Entry(version, free, clock.incrementAndGet()));
+        if (entries.size() > maxEntries) {
+            sweep();
+        }
+        return free;
+    }
+
+    /**
+     * Drops every cached window of the spot.
+     */
+    public void invalidate(long spotId) {
+        versions.merge(spotId, 1L, Long::sum);
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Drops stale entries, then the least recently used ones down to 90% of max-entries.
+     * Runs on one thread at a time; a caller finding a sweep in progress just returns.
+     */
+    void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entries.entrySet().removeIf(e -> e.getValue().version != versions.getOrDefault(e.getKey().spotId(), 0L));
+            int target = maxEntries - maxEntries / 10;
+            long[] accessTimes = entries.size() > target
+                    ? entries.values().stream().mapToLong(e -> e.lastAccess).toArray()
+                    : new long[0];
+            int excess = accessTimes.length - target;
+            if (excess > 0) {
+                Arrays.sort(accessTimes);
+                long cutoff = accessTimes[excess - 1];
+                for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                    if (e.getValue().lastAccess <= cutoff && entries.remove(e.getKey(), e.getValue())) {
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    public AvailabilityCacheStatsDTO getStats() {
+        return new AvailabilityCacheStatsDTO(entries.size(), maxEntries, hits.get(), misses.get(),
+                evictions.get(), invalidations.get());
+    }
+}
@@ -1,14 +1,21 @@
 package org.zakariafarih.parkingmanager.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.zakariafarih.parkingmanager.model.ParkingSpot;
-import org.zakariafarih.parkingmanager.model.Reservation;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.Role;
+import org.zakariafarih.parkingmanager.payload.AvailabilityMatrixDTO;
+import org.zakariafarih.parkingmanager.payload.FreeSpotDTO;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
 import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+import org.zakariafarih.parkingmanager.repository.ReservationHistoryRepository;
 import org.zakariafarih.parkingmanager.repository.ReservationRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 
@@ -19,53 +26,171 @@ import java.util.List;
 @Service
 public class AvailabilityService {
 
+    private static final int MAX_MATRIX_SLOTS = 10_000;
+    // free time beyond a day on either side does not make a spot a worse fit
+    private static final long MAX_SLACK_SIDE_MILLIS = 24 * 60 * 60_000L;
+
     @Autowired
     private ParkingSpotRepository parkingSpotRepository;
 
     @Autowired
     private ReservationRepository reservationRepository;
 
+    @Autowired
+    private ReservationHistoryRepository reservationHistoryRepository;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private ReservationIntervalIndex reservationIntervalIndex;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Value("${parking.archive.retain-hours:24}")
+    private long archiveRetainHours;
+
     /**
      * Returns a list of free intervals (start->end pairs) for the given parking spot
      * between windowStart and windowEnd, after considering all existing reservations.
+     * Answered from the in-memory interval index, without touching the database.
+     * The window is widened to whole minutes and cached, then clipped back to the request.
      */
     public List<TimeInterval> getAvailableIntervals(Long parkingSpotId,
                                                     LocalDateTime windowStart,
                                                     LocalDateTime windowEnd) {
+        if (occupancyStateStore.ordinalOfId(parkingSpotId) < 0) {
+            throw new RuntimeException("Parking spot not found");
+        }
+        long startMinute = Math.floorDiv(ReservationIntervalIndex.toMillis(windowStart), 60_000L);
+        long endMinute = Math.floorDiv(ReservationIntervalIndex.toMillis(windowEnd) + 59_999L, 60_000L);
+        List<TimeInterval> cached = availabilityCache.get(parkingSpotId, startMinute, endMinute,
+                () -> reservationIntervalIndex.freeIntervals(parkingSpotId,
+                        ReservationIntervalIndex.fromMillis(startMinute * 60_000L),
+                        ReservationIntervalIndex.fromMillis(endMinute * 60_000L)));
+
+        List<TimeInterval> free = new ArrayList<>(cached.size());
+        for (TimeInterval interval : cached) {
+            LocalDateTime start = interval.getStart().isBefore(windowStart) ? windowStart : interval.getStart();
+            LocalDateTime end = interval.getEnd().isAfter(windowEnd) ? windowEnd : interval.getEnd();
+            if (end.isAfter(start)) {
+                free.add(new TimeInterval(start, end));
+            }
+        }
+        return free;
+    }
 
-        ParkingSpot spot = parkingSpotRepository.findById(parkingSpotId)
-                .orElseThrow(() -> new RuntimeException("Parking spot not found"));
-
-        List<Reservation> reservations = reservationRepository.findByParkingSpotAndEndTimeAfter(spot, windowStart);
-
-        reservations.sort(Comparator.comparing(Reservation::getStartTime));
-
-        List<TimeInterval> availableIntervals = new ArrayList<>();
-        LocalDateTime currentStart = windowStart;
-
-        for (Reservation res : reservations) {
-            LocalDateTime resStart = res.getStartTime();
-            LocalDateTime resEnd = res.getEndTime();
+    /**
+     * Builds the reservation timeline of every spot (or one category) over [windowStart, windowEnd)
+     * in slots of {@code slotMinutes}, with one range query (plus one on the archive for
+     * windows reaching back past the archive cutoff) and a single sweep over the
+     * reservations sorted by spot.
+     */
+    public AvailabilityMatrixDTO getAvailabilityMatrix(LocalDateTime windowStart,
+                                                       LocalDateTime windowEnd,
+                                                       int slotMinutes,
+                                                       ParkingSpotCategory category) {
+        if (slotMinutes <= 0) {
+            throw new RuntimeException("Slot length must be positive");
+        }
+        long slotMillis = slotMinutes * 60_000L;
+        long startMillis = ReservationIntervalIndex.toMillis(windowStart);
+        long windowMillis = ReservationIntervalIndex.toMillis(windowEnd) - startMillis;
+        long slots = (windowMillis + slotMillis - 1) / slotMillis;
+        if (slots <= 0 || slots > MAX_MATRIX_SLOTS) {
+            throw new RuntimeException("Window must span between 1 and " + MAX_MATRIX_SLOTS + " slots");
+        }
+        int slotCount = (int) slots;
+
+        List<ParkingSpotSummaryDTO> spots = category == null
+                ? parkingSpotRepository.findSummaryViews()
+                : parkingSpotRepository.findSummaryViewsByCategory(category);
+        List<Object[]> reservations = reservationRepository.findIntervalsBetween(windowStart, windowEnd);
+        // reservations that ended before the archive cutoff have moved to reservation_history
+        if (windowStart.isBefore(LocalDateTime.now().minusHours(archiveRetainHours))) {
+            reservations = mergeBySpot(reservations, reservationHistoryRepository.findIntervalsBetween(windowStart, windowEnd));
+        }
 
-            if (resStart.isAfter(currentStart)) {
-                LocalDateTime gapEnd = resStart.isBefore(windowEnd) ? resStart : windowEnd;
-                if (gapEnd.isAfter(currentStart)) {
-                    availableIntervals.add(new TimeInterval(currentStart, gapEnd));
-                }
+        List<AvailabilityMatrixDTO.SpotRow> rows = new ArrayList<>(spots.size());
+        BitSet reserved = new BitSet(slotCount);
+        int r = 0;
+        for (ParkingSpotSummaryDTO spot : spots) {
+            long spotId = spot.getId();
+            // both lists are ordered by spot id: skip reservations of spots not in the result
+            while (r < reservations.size() && (Long) reservations.get(r)[0] < spotId) {
+                r++;
             }
-            if (resEnd.isAfter(currentStart)) {
-                currentStart = resEnd;
+            reserved.clear();
+            for (; r < reservations.size() && (Long) reservations.get(r)[0] == spotId; r++) {
+                Object[] res = reservations.get(r);
+                long from = ReservationIntervalIndex.toMillis((LocalDateTime) res[1]) - startMillis;
+                long to = ReservationIntervalIndex.toMillis((LocalDateTime) res[2]) - startMillis;
+                int firstSlot = (int) Math.max(0, from / slotMillis);
+                int endSlot = (int) Math.min(slotCount, (to + slotMillis - 1) / slotMillis);
+                if (endSlot > firstSlot) {
+                    reserved.set(firstSlot, endSlot);
+                }
             }
-            if (currentStart.isAfter(windowEnd)) {
-                break;
+            rows.add(new AvailabilityMatrixDTO.SpotRow(spotId, spot.getLabel(), spot.getCategory(),
+                    Base64.getEncoder().encodeToString(reserved.toByteArray())));
+        }
+        return new AvailabilityMatrixDTO(windowStart, windowEnd, slotMinutes, slotCount, rows);
+    }
+
+    /**
+     * Merges two lists of [spotId, ...] rows, each ordered by spot id, keeping that order.
+     */
+    private static List<Object[]> mergeBySpot(List<Object[]> a, List<Object[]> b) {
+        if (b.isEmpty()) {
+            return a;
+        }
+        List<Object[]> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j == b.size() || (i < a.size() && (Long) a.get(i)[0] <= (Long) b.get(j)[0])) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
             }
         }
+        return merged;
+    }
 
-        if (currentStart.isBefore(windowEnd)) {
-            availableIntervals.add(new TimeInterval(currentStart, windowEnd));
+    /**
+     * Finds up to {@code limit} bookable spots free for [start, end) that the given role may
+     * reserve, optionally restricted to one category. Spots whose surrounding free gap fits the
+     * window most tightly come first, so long gaps stay available for long bookings.
+     * Answered entirely from the in-memory stores.
+     */
+    public List<FreeSpotDTO> findFreeSpots(LocalDateTime start,
+                                           LocalDateTime end,
+                                           ParkingSpotCategory category,
+                                           Role role,
+                                           int limit) {
+        int spotCount = occupancyStateStore.size();
+        List<long[]> candidates = new ArrayList<>();
+        for (int ordinal = 0; ordinal < spotCount; ordinal++) {
+            ParkingSpotCategory spotCategory = occupancyStateStore.categoryAt(ordinal);
+            if ((category != null && spotCategory != category) || !ReservationService.canReserve(role, spotCategory)
+                    || !ReservationService.isBookable(occupancyStateStore.statusAt(ordinal))) {
+                continue;
+            }
+            long slack = reservationIntervalIndex.gapSlackMillis(occupancyStateStore.idAt(ordinal), start, end, MAX_SLACK_SIDE_MILLIS);
+            if (slack >= 0) {
+                candidates.add(new long[]{slack, ordinal});
+            }
         }
+        candidates.sort(Comparator.<long[]>comparingLong(c -> c[0]).thenComparingLong(c -> c[1]));
 
-        return availableIntervals;
+        List<FreeSpotDTO> result = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            int ordinal = (int) candidates.get(i)[1];
+            result.add(new FreeSpotDTO(occupancyStateStore.idAt(ordinal), occupancyStateStore.labelAt(ordinal),
+                    occupancyStateStore.categoryAt(ordinal), candidates.get(i)[0] / 60_000L));
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,88 @@
+package org.zakariafarih.parkingmanager.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable uniform grid over axis-aligned boxes (given as parallel min/max arrays).
+ * Each box is registered in every cell it overlaps; cells are stored CSR-style
+ * ({@code cellStart} offsets into one array of box indexes). Points outside the grid
+ * clamp to the border cells.
+ */
+final class BoxGrid {
+
+    final double originX;
+    final double originY;
+    final double cellSize;
+    final int columns;
+    final int rows;
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    BoxGrid(double[] minX, double[] minY, double[] maxX, double[] maxY, int n, double boxesPerCell) {
+        if (n == 0) {
+            originX = originY = 0;
+            cellSize = 1;
+            columns = rows = 1;
+            cellStart = new int[2];
+            cellItems = new int[0];
+            return;
+        }
+        double x0 = Arrays.stream(minX, 0, n).min().getAsDouble();
+        double y0 = Arrays.stream(minY, 0, n).min().getAsDouble();
+        double width = Math.max(Arrays.stream(maxX, 0, n).max().getAsDouble() - x0, 1e-9);
+        double height = Math.max(Arrays.stream(maxY, 0, n).max().getAsDouble() - y0, 1e-9);
+        originX = x0;
+        originY = y0;
+        cellSize = Math.sqrt(width * height * boxesPerCell / n);
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+        // two passes: count per cell, then fill
+        cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < n; i++) {
+            for (int cy = cellY(minY[i]); cy <= cellY(maxY[i]); cy++) {
+                for (int cx = cellX(minX[i]); cx <= cellX(maxX[i]); cx++) {
+                    cellStart[cy * columns + cx + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellItems = new int[cellStart[columns * rows]];
+        int[] cursor = Arrays.copyOf(cellStart, cellStart.length);
+        for (int i = 0; i < n; i++) {
+            for (int cy = cellY(minY[i]); cy <= cellY(maxY[i]); cy++) {
+                for (int cx = cellX(minX[i]); cx <= cellX(maxX[i]); cx++) {
+                    cellItems[cursor[cy * columns + cx]++] = i;
+                }
+            }
+        }
+    }
+
+    int cellX(double x) {
+        return clamp((int) Math.floor((x - originX) / cellSize), columns);
+    }
+
+    int cellY(double y) {
+        return clamp((int) Math.floor((y - originY) / cellSize), rows);
+    }
+
+    /** First index into {@link #item} for a cell. */
+    int start(int cx, int cy) {
+        return cellStart[cy * columns + cx];
+    }
+
+    /** End (exclusive) index into {@link #item} for a cell. */
+    int end(int cx, int cy) {
+        return cellStart[cy * columns + cx + 1];
+    }
+
+    int item(int i) {
+        return cellItems[i];
+    }
+
+    private static int clamp(int v, int limit) {
+        return v < 0 ? 0 : Math.min(v, limit - 1);
+    }
+}
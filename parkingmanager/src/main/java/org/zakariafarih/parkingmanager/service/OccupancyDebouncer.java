@@ -0,0 +1,68 @@
+package org.zakariafarih.parkingmanager.service;
+
+import java.util.Arrays;
+
+/**
+ * Per-spot hysteresis for camera occupancy signals.
+ *
+ * A spot only switches state once the opposite reading has been seen in at least
+ * {@code minFrames} consecutive frames and has lasted at least {@code minDwellMillis}.
+ * A candidate change that flips back before both thresholds are met is counted as a
+ * suppressed transition. Use minFrames=1 and minDwellMillis=0 to disable debouncing.
+ *
+ * State lives in primitive arrays indexed by spot ordinal. Not thread-safe: each lot's
+ * ingestion writer owns its own instance.
+ */
+public class OccupancyDebouncer {
+
+    private final int minFrames;
+    private final long minDwellMillis;
+
+    private int[] streaks = new int[0];
+    private long[] candidateSince = new long[0];
+    private volatile long suppressed;
+
+    public OccupancyDebouncer(int minFrames, long minDwellMillis) {
+        this.minFrames = Math.max(1, minFrames);
+        this.minDwellMillis = Math.max(0, minDwellMillis);
+    }
+
+    /**
+     * Feeds one reading for a spot.
+     *
+     * @param current  the spot's committed occupancy
+     * @param observed the occupancy seen in this frame
+     * @param atMillis when the frame was received
+     * @return the occupancy to commit for this spot
+     */
+    public boolean observe(int ordinal, boolean current, boolean observed, long atMillis) {
+        ensureCapacity(ordinal + 1);
+        if (observed == current) {
+            if (streaks[ordinal] > 0) {
+                streaks[ordinal] = 0;
+                suppressed++;
+            }
+            return current;
+        }
+        if (streaks[ordinal]++ == 0) {
+            candidateSince[ordinal] = atMillis;
+        }
+        if (streaks[ordinal] >= minFrames && atMillis - candidateSince[ordinal] >= minDwellMillis) {
+            streaks[ordinal] = 0;
+            return observed;
+        }
+        return current;
+    }
+
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (streaks.length < capacity) {
+            int grown = Math.max(capacity, streaks.length * 2);
+            streaks = Arrays.copyOf(streaks, grown);
+            candidateSince = Arrays.copyOf(candidateSince, grown);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.zakariafarih.parkingmanager.service;
+
+/**
+ * One occupancy frame from a camera feeder, already resolved to spot ordinals.
+ * {@code ordinals == null} means the frame is dense: entry i is ordinal i. Dense binary
+ * frames keep their occupancy as a bitset ({@code bits}, bit i = entry i) rather than
+ * one boolean per spot.
+ */
+public final class OccupancyFrame {
+
+    /** Sequence of frames that carry none (JSON feeder). */
+    public static final long UNSEQUENCED = -1;
+
+    private final int lotId;
+    private final long sequence;
+    private final int[] ordinals;
+    private final boolean[] occupied;
+    private final long[] bits;
+    private final int length;
+    private final long receivedAtMillis;
+
+    public OccupancyFrame(int lotId, long sequence, int[] ordinals, boolean[] occupied, int length) {
+        this.lotId = lotId;
+        this.sequence = sequence;
+        this.ordinals = ordinals;
+        this.occupied = occupied;
+        this.bits = null;
+        this.length = length;
+        this.receivedAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Dense frame whose entry i is occupied when bit i of {@code bits} is set.
+     */
+    public OccupancyFrame(int lotId, long sequence, long[] bits, int length) {
+        this.lotId = lotId;
+        this.sequence = sequence;
+        this.ordinals = null;
+        this.occupied = null;
+        this.bits = bits;
+        this.length = length;
+        this.receivedAtMillis = System.currentTimeMillis();
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getReceivedAtMillis() {
+        return receivedAtMillis;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int ordinalAt(int index) {
+        return ordinals == null ? index : ordinals[index];
+    }
+
+    public boolean isOccupied(int index) {
+        return bits != null ? (bits[index >>> 6] & (1L << index)) != 0 : occupied[index];
+    }
+}
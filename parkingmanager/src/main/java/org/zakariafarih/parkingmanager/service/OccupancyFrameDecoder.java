@@ -0,0 +1,95 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the compact binary occupancy frame sent by the CV feeder:
+ *
+ * <pre>
+ *   int32  lotId
+ *   int64  sequence     (0 restarts the stream, e.g. after a feeder restart)
+ *   int32  spotCount
+ *   byte[] bits         ceil(spotCount / 8) bytes, bit (i % 8) of byte (i / 8) = spot ordinal i
+ * </pre>
+ *
+ * All integers are big-endian. Spot ordinals are the ones listed by GET /api/parking/ordinals.
+ * The request body is read into a reused per-thread buffer; the only allocation per frame
+ * is the bitset copy (one bit per spot) handed to the ingestion queue. Only the header plus the
+ * announced bit bytes are read: frames announcing more than
+ * {@code parking.ingestion.max-frame-spots} spots, or carrying trailing bytes, are
+ * rejected, so the per-thread buffer never grows past that bound.
+ */
+@Component
+public class OccupancyFrameDecoder {
+
+    public static final int HEADER_BYTES = 16;
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private final int maxSpots;
+
+    public OccupancyFrameDecoder(@Value("${parking.ingestion.max-frame-spots:65536}") int maxSpots) {
+        this.maxSpots = maxSpots;
+    }
+
+    public OccupancyFrame decode(InputStream in) throws IOException {
+        byte[] buf = BUFFERS.get();
+        int len = readFully(in, buf, 0, HEADER_BYTES);
+        if (len < HEADER_BYTES) {
+            throw new RuntimeException("Occupancy frame too short: " + len + " bytes");
+        }
+
+        int lotId = readInt(buf, 0);
+        long sequence = readLong(buf, 4);
+        int spotCount = readInt(buf, 12);
+        if (spotCount < 0 || spotCount > maxSpots) {
+            throw new RuntimeException("Occupancy frame spotCount out of range: " + spotCount + " (max " + maxSpots + ")");
+        }
+        int frameBytes = HEADER_BYTES + (spotCount + 7) / 8;
+        if (buf.length < frameBytes) {
+            // bounded by maxSpots; the header is already decoded, so nothing to copy
+            buf = new byte[Math.max(frameBytes, Math.min(buf.length * 2, HEADER_BYTES + (maxSpots + 7) / 8))];
+            BUFFERS.set(buf);
+        }
+        len = HEADER_BYTES + readFully(in, buf, HEADER_BYTES, frameBytes - HEADER_BYTES);
+        if (len < frameBytes) {
+            throw new RuntimeException("Occupancy frame truncated: spotCount=" + spotCount + ", " + len + " bytes");
+        }
+        if (in.read() != -1) {
+            throw new RuntimeException("Occupancy frame longer than " + frameBytes + " bytes for spotCount=" + spotCount);
+        }
+
+        // same bit order as the wire format, packed 8 bytes per word
+        long[] bits = new long[(spotCount + 63) >>> 6];
+        for (int i = 0; i < frameBytes - HEADER_BYTES; i++) {
+            bits[i >>> 3] |= (buf[HEADER_BYTES + i] & 0xFFL) << ((i & 7) << 3);
+        }
+        return new OccupancyFrame(lotId, sequence, bits, spotCount);
+    }
+
+    /** Reads up to {@code count} bytes into buf at off; returns how many were read (less only at EOF). */
+    private static int readFully(InputStream in, byte[] buf, int off, int count) throws IOException {
+        int total = 0;
+        while (total < count) {
+            int read = in.read(buf, off + total, count - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16)
+                | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] b, int off) {
+        return ((long) readInt(b, off) << 32) | (readInt(b, off + 4) & 0xFFFFFFFFL);
+    }
+}
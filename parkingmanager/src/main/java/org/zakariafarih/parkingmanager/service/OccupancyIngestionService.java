@@ -0,0 +1,270 @@
+package org.zakariafarih.parkingmanager.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.zakariafarih.parkingmanager.payload.DetectionFrameDTO;
+import org.zakariafarih.parkingmanager.payload.IngestionStatsDTO;
+import org.zakariafarih.parkingmanager.payload.PythonOccupancyDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes occupancy frames off the request threads.
+ *
+ * Each lot has a bounded frame queue and at most one writer draining it at a time.
+ * The writer takes the frames that queued up while the previous flush was running
+ * (at most as many as were queued when it started), keeps only the latest state per
+ * spot, applies it to the {@link OccupancyStateStore} and then does a single DB flush +
+ * broadcast for the whole batch. If more frames arrived meanwhile, the lot goes to the
+ * back of the writer pool's queue, so a busy lot cannot hold a writer while others wait.
+ * When a queue is full the oldest frame is dropped, since newer frames supersede it.
+ *
+ * A spot with image corners on one camera only takes readings from that camera's lot:
+ * frames carry store-wide ordinals, and another lot's frame must not overwrite it.
+ *
+ * Every reading goes through the lot's {@link OccupancyDebouncer} before it can
+ * change a spot, so detection flicker never reaches the DB or the clients.
+ */
+@Service
+public class OccupancyIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyIngestionService.class);
+
+    /** Lot used by the JSON feeder, which does not send a lot id. */
+    public static final int DEFAULT_LOT = 0;
+
+    private static final byte NO_UPDATE = 0;
+    private static final byte FREE = 1;
+    private static final byte OCCUPIED = 2;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private OccupancyFrameDecoder occupancyFrameDecoder;
+
+    @Autowired
+    private SpotQuadIndex spotQuadIndex;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Value("${parking.ingestion.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${parking.ingestion.writer-threads:2}")
+    private int writerThreads;
+
+    @Value("${parking.ingestion.max-lots:16}")
+    private int maxLots;
+
+    @Value("${parking.debounce.min-frames:3}")
+    private int debounceMinFrames;
+
+    @Value("${parking.debounce.min-dwell-ms:0}")
+    private long debounceMinDwellMillis;
+
+    private final ConcurrentHashMap<Integer, LotQueue> lots = new ConcurrentHashMap<>();
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void start() {
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        writers.shutdown();
+    }
+
+    /**
+     * Queues a JSON frame ({spotId, occupied} per spot) for the default lot.
+     */
+    public void submitPythonOccupancies(List<PythonOccupancyDTO> occupancyList) {
+        int[] ordinals = new int[occupancyList.size()];
+        boolean[] occupied = new boolean[occupancyList.size()];
+        int length = 0;
+        for (PythonOccupancyDTO dto : occupancyList) {
+            int ordinal = occupancyStateStore.ordinalOf(String.valueOf(dto.getSpotId()));
+            if (ordinal >= 0) {
+                ordinals[length] = ordinal;
+                occupied[length] = dto.isOccupied();
+                length++;
+            }
+        }
+        submit(new OccupancyFrame(DEFAULT_LOT, OccupancyFrame.UNSEQUENCED, ordinals, occupied, length));
+    }
+
+    /**
+     * Decodes and queues a binary frame (see {@link OccupancyFrameDecoder}).
+     *
+     * @return false if the frame was not queued (stale sequence or too many lots).
+     */
+    public boolean submitBinaryFrame(InputStream in) throws IOException {
+        return submit(occupancyFrameDecoder.decode(in));
+    }
+
+    /**
+     * Matches a frame of raw vehicle boxes to spots (see {@link SpotQuadIndex}) and queues
+     * the resulting occupancy for every spot with image corners on that camera (lot).
+     *
+     * @return false if the frame was not queued (camera without spot corners, stale
+     *         sequence or too many lots).
+     */
+    public boolean submitDetections(DetectionFrameDTO detections) {
+        OccupancyFrame frame = spotQuadIndex.match(detections.getLotId(), detections.getSequence(), detections.getBoxes());
+        return frame != null && submit(frame);
+    }
+
+    public boolean submit(OccupancyFrame frame) {
+        LotQueue lot = lots.get(frame.getLotId());
+        if (lot == null) {
+            if (lots.size() >= maxLots) {
+                logger.warn("Dropping occupancy frame for lot {}: max {} lots reached", frame.getLotId(), maxLots);
+                return false;
+            }
+            lot = lots.computeIfAbsent(frame.getLotId(), LotQueue::new);
+        }
+        if (!lot.accept(frame)) {
+            return false;
+        }
+        if (lot.scheduled.compareAndSet(false, true)) {
+            writers.execute(lot::drain);
+        }
+        return true;
+    }
+
+    public List<IngestionStatsDTO> getStats() {
+        List<IngestionStatsDTO> stats = new ArrayList<>();
+        for (LotQueue lot : lots.values()) {
+            stats.add(new IngestionStatsDTO(lot.lotId, lot.queue.size(), lot.accepted.get(),
+                    lot.coalesced.get(), lot.dropped.get(), lot.stale.get(), lot.flushes.get(),
+                    lot.debouncer.getSuppressed()));
+        }
+        return stats;
+    }
+
+    private class LotQueue {
+        final int lotId;
+        final ArrayBlockingQueue<OccupancyFrame> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicLong lastSequence = new AtomicLong(-1);
+        final AtomicLong accepted = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong stale = new AtomicLong();
+        final AtomicLong flushes = new AtomicLong();
+
+        // writer-only state, reused across batches
+        final OccupancyDebouncer debouncer = new OccupancyDebouncer(debounceMinFrames, debounceMinDwellMillis);
+        final List<OccupancyFrame> batch = new ArrayList<>();
+        byte[] latest = new byte[0];
+        int[] touched = new int[0];
+
+        LotQueue(int lotId) {
+            this.lotId = lotId;
+        }
+
+        boolean accept(OccupancyFrame frame) {
+            if (frame.getSequence() != OccupancyFrame.UNSEQUENCED && !advanceSequence(frame.getSequence())) {
+                stale.incrementAndGet();
+                return false;
+            }
+            while (!queue.offer(frame)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            accepted.incrementAndGet();
+            return true;
+        }
+
+        private boolean advanceSequence(long sequence) {
+            long prev;
+            do {
+                prev = lastSequence.get();
+                if (sequence != 0 && sequence <= prev) {
+                    return false;
+                }
+            } while (!lastSequence.compareAndSet(prev, sequence));
+            return true;
+        }
+
+        void drain() {
+            queue.drainTo(batch, queue.size());
+            if (!batch.isEmpty()) {
+                try {
+                    applyBatch();
+                } catch (RuntimeException ex) {
+                    logger.error("Failed to flush occupancy frames for lot {}", lotId, ex);
+                } finally {
+                    batch.clear();
+                }
+            }
+            if (queue.isEmpty()) {
+                scheduled.set(false);
+                // a frame may have arrived between the check and the reset above
+                if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+            // more frames: requeue behind the other lots instead of looping on this thread
+            writers.execute(this::drain);
+        }
+
+        private void applyBatch() {
+            int spotCount = occupancyStateStore.size();
+            if (latest.length < spotCount) {
+                latest = new byte[spotCount];
+                touched = new int[spotCount];
+            }
+            int[] lotOfOrdinal = spotQuadIndex.lotsOfOrdinals();
+            int touchedCount = 0;
+            for (OccupancyFrame frame : batch) {
+                for (int i = 0; i < frame.getLength(); i++) {
+                    int ordinal = frame.ordinalAt(i);
+                    if (ordinal >= spotCount
+                            || (ordinal < lotOfOrdinal.length && lotOfOrdinal[ordinal] >= 0 && lotOfOrdinal[ordinal] != lotId)) {
+                        continue;
+                    }
+                    boolean current;
+                    if (latest[ordinal] == NO_UPDATE) {
+                        touched[touchedCount++] = ordinal;
+                        current = occupancyStateStore.isOccupied(ordinal);
+                    } else {
+                        current = latest[ordinal] == OCCUPIED;
+                    }
+                    boolean committed = debouncer.observe(ordinal, current, frame.isOccupied(i), frame.getReceivedAtMillis());
+                    latest[ordinal] = committed ? OCCUPIED : FREE;
+                }
+            }
+            coalesced.addAndGet(batch.size() - 1);
+
+            for (int i = 0; i < touchedCount; i++) {
+                int ordinal = touched[i];
+                occupancyStateStore.applyOccupancy(ordinal, latest[ordinal] == OCCUPIED);
+                latest[ordinal] = NO_UPDATE;
+            }
+            parkingSpotService.commitOccupancyChanges();
+            flushes.incrementAndGet();
+        }
+    }
+}
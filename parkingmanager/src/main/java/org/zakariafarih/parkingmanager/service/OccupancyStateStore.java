@@ -0,0 +1,249 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zakariafarih.parkingmanager.model.ParkingSpot;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
+import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Authoritative in-memory copy of every spot's status/occupancy (plus its category).
+ *
+ * Each spot gets a stable ordinal (DB id order at load, new spots appended) and its
+ * state lives in primitive arrays indexed by that ordinal. Applying an occupancy
+ * frame only touches the spots in the frame, and spots whose state actually changed
+ * are tracked in a dirty set so the caller can persist just those rows.
+ */
+@Component
+public class OccupancyStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyStateStore.class);
+    private static final ParkingStatus[] STATUSES = ParkingStatus.values();
+    private static final ParkingSpotCategory[] CATEGORIES = ParkingSpotCategory.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    private final Map<String, Integer> ordinalsByLabel = new HashMap<>();
+    private final Map<Long, Integer> ordinalsById = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private String[] labels = new String[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private byte[] categories = new byte[INITIAL_CAPACITY];
+    private boolean[] occupied = new boolean[INITIAL_CAPACITY];
+    private final BitSet dirty = new BitSet();
+    private int size;
+    private boolean loaded;
+
+    /**
+     * Returns the ordinal for a spot label, or -1 if the label is unknown.
+     */
+    public synchronized int ordinalOf(String label) {
+        ensureLoaded();
+        Integer ordinal = ordinalsByLabel.get(label);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Returns the ordinal for a spot DB id, or -1 if the id is unknown.
+     */
+    public synchronized int ordinalOfId(long id) {
+        ensureLoaded();
+        Integer ordinal = ordinalsById.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return size;
+    }
+
+    public synchronized long idAt(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public synchronized String labelAt(int ordinal) {
+        return labels[ordinal];
+    }
+
+    public synchronized ParkingStatus statusAt(int ordinal) {
+        return STATUSES[statuses[ordinal]];
+    }
+
+    public synchronized ParkingSpotCategory categoryAt(int ordinal) {
+        return CATEGORIES[categories[ordinal]];
+    }
+
+    public synchronized boolean isOccupied(int ordinal) {
+        return occupied[ordinal];
+    }
+
+    /**
+     * Applies a detected occupancy to one spot: OCCUPIED when occupied. A free reading only
+     * clears the occupied flag and turns OCCUPIED back into AVAILABLE; any other status
+     * (RESERVED by a reservation, VIP, maintenance...) is left as it is.
+     *
+     * @return true if the spot's state changed (and it is now dirty).
+     */
+    public synchronized boolean applyOccupancy(int ordinal, boolean isOccupied) {
+        byte target;
+        if (isOccupied) {
+            target = (byte) ParkingStatus.OCCUPIED.ordinal();
+        } else if (statuses[ordinal] == ParkingStatus.OCCUPIED.ordinal()) {
+            target = (byte) ParkingStatus.AVAILABLE.ordinal();
+        } else {
+            target = statuses[ordinal];
+        }
+        if (occupied[ordinal] == isOccupied && statuses[ordinal] == target) {
+            return false;
+        }
+        occupied[ordinal] = isOccupied;
+        statuses[ordinal] = target;
+        dirty.set(ordinal);
+        return true;
+    }
+
+    /**
+     * Sets a spot's status (clearing its occupied flag unless OCCUPIED), e.g. a scheduled
+     * reservation start or end.
+     *
+     * @return true if the spot's state changed (and it is now dirty).
+     */
+    public synchronized boolean applyStatus(int ordinal, ParkingStatus status) {
+        boolean isOccupied = status == ParkingStatus.OCCUPIED;
+        if (occupied[ordinal] == isOccupied && statuses[ordinal] == status.ordinal()) {
+            return false;
+        }
+        occupied[ordinal] = isOccupied;
+        statuses[ordinal] = (byte) status.ordinal();
+        dirty.set(ordinal);
+        return true;
+    }
+
+    /**
+     * Returns the ordinals changed since the last drain and clears the dirty set.
+     */
+    public synchronized int[] drainDirty() {
+        int[] drained = dirty.stream().toArray();
+        dirty.clear();
+        return drained;
+    }
+
+    /**
+     * Re-marks ordinals as dirty, e.g. after a failed flush so the next flush retries them.
+     */
+    public synchronized void markDirty(int[] ordinals) {
+        for (int ordinal : ordinals) {
+            dirty.set(ordinal);
+        }
+    }
+
+    /**
+     * Syncs the store with a spot that was saved through JPA elsewhere
+     * (admin status change, reservation, newly created spot).
+     */
+    public synchronized void update(ParkingSpot spot) {
+        if (!loaded) {
+            return; // will be picked up by the initial load
+        }
+        Integer ordinal = ordinalsById.get(spot.getId());
+        if (ordinal == null) {
+            ordinal = append(spot.getId(), spot.getLabel(), spot.getCategory());
+        } else if (!spot.getLabel().equals(labels[ordinal])) {
+            ordinalsByLabel.remove(labels[ordinal]);
+            ordinalsByLabel.put(spot.getLabel(), ordinal);
+            labels[ordinal] = spot.getLabel();
+        }
+        statuses[ordinal] = (byte) spot.getStatus().ordinal();
+        categories[ordinal] = (byte) spot.getCategory().ordinal();
+        occupied[ordinal] = spot.isOccupied();
+        dirty.clear(ordinal);
+    }
+
+    /**
+     * Syncs the store with a status already written to the DB by id (e.g. a bulk
+     * RESERVED update); the occupied flag is left as the cameras reported it.
+     *
+     * @return the spot's ordinal.
+     */
+    public synchronized int updateStatus(long id, ParkingStatus status) {
+        ensureLoaded();
+        Integer ordinal = ordinalsById.get(id);
+        if (ordinal == null) {
+            throw new IllegalStateException("Spot " + id + " is not in the occupancy state store");
+        }
+        statuses[ordinal] = (byte) status.ordinal();
+        dirty.clear(ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Re-reads the spot list after a bulk layout import: unknown spots are appended
+     * (with their stored status), known ones get their label/category refreshed.
+     */
+    public synchronized void refreshLayout() {
+        if (!loaded) {
+            return; // the initial load will see everything
+        }
+        int appended = 0;
+        for (ParkingSpotSummaryDTO spot : parkingSpotRepository.findSummaryViews()) {
+            Integer ordinal = ordinalsById.get(spot.getId());
+            if (ordinal == null) {
+                ordinal = append(spot.getId(), spot.getLabel(), spot.getCategory());
+                statuses[ordinal] = (byte) spot.getStatus().ordinal();
+                occupied[ordinal] = spot.isOccupied();
+                appended++;
+                continue;
+            }
+            if (!spot.getLabel().equals(labels[ordinal])) {
+                ordinalsByLabel.remove(labels[ordinal]);
+                ordinalsByLabel.put(spot.getLabel(), ordinal);
+                labels[ordinal] = spot.getLabel();
+            }
+            categories[ordinal] = (byte) spot.getCategory().ordinal();
+        }
+        logger.info("Occupancy state store refreshed, {} spots appended", appended);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        // projection ordered by id: status columns only, no geometry
+        for (ParkingSpotSummaryDTO spot : parkingSpotRepository.findSummaryViews()) {
+            int ordinal = append(spot.getId(), spot.getLabel(), spot.getCategory());
+            statuses[ordinal] = (byte) spot.getStatus().ordinal();
+            occupied[ordinal] = spot.isOccupied();
+        }
+        loaded = true;
+        logger.info("Occupancy state store loaded with {} spots", size);
+    }
+
+    private int append(long id, String label, ParkingSpotCategory category) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            occupied = Arrays.copyOf(occupied, capacity);
+        }
+        int ordinal = size++;
+        ids[ordinal] = id;
+        labels[ordinal] = label;
+        categories[ordinal] = (byte) category.ordinal();
+        ordinalsById.put(id, ordinal);
+        ordinalsByLabel.put(label, ordinal);
+        return ordinal;
+    }
+}
@@ -1,15 +1,16 @@
 package org.zakariafarih.parkingmanager.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.zakariafarih.parkingmanager.model.ParkingSpot;
 import org.zakariafarih.parkingmanager.model.ParkingStatus;
-import org.zakariafarih.parkingmanager.model.Reservation;
-import org.zakariafarih.parkingmanager.payload.PythonOccupancyDTO;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
 import org.zakariafarih.parkingmanager.payload.SpotCornerDTO;
 import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
 import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
@@ -20,6 +21,7 @@ import java.util.*;
 @Service
 public class ParkingSpotService {
     private static final Logger logger = LoggerFactory.getLogger(ParkingSpotService.class);
+    private static final String FLUSH_SQL = "UPDATE parking_spots SET status = ?, occupied = ? WHERE id = ?";
 
     @Autowired
     private ParkingSpotRepository parkingSpotRepository;
@@ -31,9 +33,29 @@ public class ParkingSpotService {
     private NotificationService notificationService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ParkingUpdatePublisher parkingUpdatePublisher;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private SpotGeometryService spotGeometryService;
+
+    @Autowired
+    private SpotQuadIndex spotQuadIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
 
     private final Random random = new Random();
+    private final Object flushLock = new Object();
 
     public ParkingSpot createParkingSpot(ParkingSpot parkingSpot) {
         if (parkingSpot.getCategory() == null) {
@@ -42,6 +64,8 @@ public class ParkingSpotService {
         parkingSpot.setStatus(ParkingStatus.AVAILABLE);
         parkingSpot.setOccupied(false);
         ParkingSpot created = parkingSpotRepository.save(parkingSpot);
+        occupancyStateStore.update(created);
+        spotGeometryService.invalidate();
         logger.info("Created parking spot label={} (DB ID={})", created.getLabel(), created.getId());
         return created;
     }
@@ -50,6 +74,13 @@ public class ParkingSpotService {
         return parkingSpotRepository.findAll();
     }
 
+    /**
+     * All spots without geometry, in one projection query.
+     */
+    public List<ParkingSpotSummaryDTO> getSpotSummaries() {
+        return parkingSpotRepository.findSummaryViews();
+    }
+
     public ParkingSpot getParkingSpotById(Long id) {
         return parkingSpotRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Parking spot not found"));
@@ -60,91 +91,132 @@ public class ParkingSpotService {
         spot.setStatus(status);
         spot.setOccupied(status == ParkingStatus.OCCUPIED);
         parkingSpotRepository.save(spot);
+        occupancyStateStore.update(spot);
 
-        messagingTemplate.convertAndSend("/topic/parking-updates", spot);
+        parkingUpdatePublisher.publishSpot(spot.getId());
         return spot;
     }
 
     public void updateParkingSpotStatuses(Set<String> occupiedSpotLabels) {
         logger.info("Received occupancy update: {}", occupiedSpotLabels);
-        List<ParkingSpot> all = parkingSpotRepository.findAll();
-        for (ParkingSpot sp : all) {
-            if (occupiedSpotLabels.contains(sp.getLabel())) {
-                sp.setStatus(ParkingStatus.OCCUPIED);
-                sp.setOccupied(true);
-            } else {
-                sp.setStatus(ParkingStatus.AVAILABLE);
-                sp.setOccupied(false);
-            }
+        int spotCount = occupancyStateStore.size();
+        for (int ordinal = 0; ordinal < spotCount; ordinal++) {
+            occupancyStateStore.applyOccupancy(ordinal,
+                    occupiedSpotLabels.contains(occupancyStateStore.labelAt(ordinal)));
         }
-        parkingSpotRepository.saveAll(all);
-        messagingTemplate.convertAndSend("/topic/parking-updates", all);
+        parkingUpdatePublisher.publishDelta(flushDirtySpots());
 
-        validateReservations(all);
+        validateReservations();
     }
 
-    public void updatePythonOccupancies(List<PythonOccupancyDTO> occupancyList) {
-        System.out.println("🔄 Processing " + occupancyList.size() + " occupancy updates from Python");
-        
-        // Convert each {spotId: X, occupied: bool} => label="X"
-        Map<String, Boolean> occMap = new HashMap<>();
-        for (PythonOccupancyDTO dto : occupancyList) {
-            String label = String.valueOf(dto.getSpotId());
-            occMap.put(label, dto.isOccupied());
-            System.out.println("  - Spot " + label + ": " + (dto.isOccupied() ? "OCCUPIED" : "FREE"));
+    /**
+     * Persists and broadcasts whatever the occupancy store has marked dirty.
+     * Called by the ingestion writer after it applied a batch of frames.
+     */
+    public int commitOccupancyChanges() {
+        int[] changed = flushDirtySpots();
+        if (changed.length > 0) {
+            logger.info("Updated {} spots from camera occupancies, broadcasting to WebSocket clients", changed.length);
+            parkingUpdatePublisher.publishDelta(changed);
         }
+        return changed.length;
+    }
 
-        List<ParkingSpot> all = parkingSpotRepository.findAll();
-        int updatedCount = 0;
-
-        // Only update spots that are explicitly provided by Python vision system
-        for (ParkingSpot sp : all) {
-            if (occMap.containsKey(sp.getLabel())) {
-                boolean isOcc = occMap.get(sp.getLabel());
-                boolean wasOccupied = sp.isOccupied();
-                sp.setOccupied(isOcc);
-                sp.setStatus(isOcc ? ParkingStatus.OCCUPIED : ParkingStatus.AVAILABLE);
-                
-                if (wasOccupied != isOcc) {
-                    System.out.println("  ✓ Updated spot " + sp.getLabel() + ": " + 
-                                     (wasOccupied ? "OCCUPIED" : "FREE") + " → " + 
-                                     (isOcc ? "OCCUPIED" : "FREE"));
-                    updatedCount++;
-                }
-            }
-            // Do not modify spots that are not in the update list
+    /**
+     * Spot labels in ordinal order, i.e. the bit layout of a binary occupancy frame.
+     */
+    public List<String> getSpotOrdinals() {
+        int spotCount = occupancyStateStore.size();
+        List<String> labels = new ArrayList<>(spotCount);
+        for (int ordinal = 0; ordinal < spotCount; ordinal++) {
+            labels.add(occupancyStateStore.labelAt(ordinal));
         }
+        return labels;
+    }
 
-        System.out.println("📊 Updated " + updatedCount + " spots, broadcasting to WebSocket clients");
-        parkingSpotRepository.saveAll(all);
-        // broadcast via WebSocket
-        messagingTemplate.convertAndSend("/topic/parking-updates", all);
+    /**
+     * Writes only the spots whose state changed in the occupancy store, as one JDBC batch.
+     * The UPDATE bypasses Hibernate, so just those spots are evicted from the second-level
+     * cache; a JPQL bulk UPDATE would drop the whole ParkingSpot region on every frame.
+     */
+    private int[] flushDirtySpots() {
+        synchronized (flushLock) {
+            int[] changed = occupancyStateStore.drainDirty();
+            if (changed.length == 0) {
+                return changed;
+            }
+            List<Object[]> rows = new ArrayList<>(changed.length);
+            for (int ordinal : changed) {
+                rows.add(new Object[] {occupancyStateStore.statusAt(ordinal).name(),
+                        occupancyStateStore.isOccupied(ordinal), occupancyStateStore.idAt(ordinal)});
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(FLUSH_SQL, rows));
+            } catch (RuntimeException ex) {
+                occupancyStateStore.markDirty(changed);
+                throw ex;
+            }
+            Cache cache = entityManagerFactory.getCache();
+            for (Object[] row : rows) {
+                cache.evict(ParkingSpot.class, row[2]);
+            }
+            return changed;
+        }
     }
 
-    private void validateReservations(List<ParkingSpot> spots) {
-        LocalDateTime now = LocalDateTime.now();
-        for (ParkingSpot sp : spots) {
-            if (sp.getStatus() == ParkingStatus.OCCUPIED) {
-                Reservation activeRes = reservationService.getActiveReservationForSpot(sp.getId(), now);
-                if (activeRes == null) {
-                    String alert = "Alert: Spot " + sp.getLabel() + " is occupied with no active reservation!";
-                    logger.warn(alert);
-                    notificationService.sendNotificationToAdmins(alert);
-                }
+    private void validateReservations() {
+        int spotCount = occupancyStateStore.size();
+        List<Long> occupiedIds = new ArrayList<>();
+        for (int ordinal = 0; ordinal < spotCount; ordinal++) {
+            if (occupancyStateStore.statusAt(ordinal) == ParkingStatus.OCCUPIED) {
+                occupiedIds.add(occupancyStateStore.idAt(ordinal));
+            }
+        }
+        Set<Long> reserved = reservationService.getSpotIdsWithActiveReservation(occupiedIds, LocalDateTime.now());
+        for (Long spotId : occupiedIds) {
+            if (!reserved.contains(spotId)) {
+                String alert = "Alert: Spot " + occupancyStateStore.labelAt(occupancyStateStore.ordinalOfId(spotId))
+                        + " is occupied with no active reservation!";
+                logger.warn(alert);
+                notificationService.sendNotificationToAdmins(alert);
             }
         }
     }
 
+    /**
+     * Saves camera image corners for many spots with one batched UPDATE (all or nothing)
+     * and publishes them to the {@link SpotQuadIndex} under their camera, so detection
+     * matching sees them immediately.
+     */
     public void saveImageCorners(List<SpotCornerDTO> cornerList) {
-        for (SpotCornerDTO dto : cornerList) {
-            ParkingSpot spot = getParkingSpotById(dto.getSpotId());
-            try {
-                String cornersJson = new ObjectMapper().writeValueAsString(dto.getCorners());
-                spot.setImageCoordinates(cornersJson);
-                parkingSpotRepository.save(spot);
-            } catch (Exception e) {
-                e.printStackTrace();
+        int[] lotIds = new int[cornerList.size()];
+        int[] ordinals = new int[cornerList.size()];
+        int[][] corners = new int[cornerList.size()][];
+        List<Object[]> rows = new ArrayList<>(cornerList.size());
+        for (int i = 0; i < cornerList.size(); i++) {
+            SpotCornerDTO dto = cornerList.get(i);
+            ordinals[i] = occupancyStateStore.ordinalOfId(dto.getSpotId());
+            if (ordinals[i] < 0) {
+                throw new RuntimeException("Parking spot not found with ID=" + dto.getSpotId());
             }
+            if (dto.getCorners() == null) {
+                throw new RuntimeException("Corners are required for spot ID=" + dto.getSpotId());
+            }
+            lotIds[i] = dto.getLotId();
+            corners[i] = SpotQuadIndex.flatten(dto.getCorners());
+            rows.add(new Object[] {SpotQuadIndex.toJson(corners[i]), dto.getLotId(), dto.getSpotId()});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "UPDATE parking_spots SET image_coordinates = ?, image_lot_id = ? WHERE id = ?", rows));
+
+        // the UPDATE bypassed Hibernate, so drop the cached entities
+        Cache cache = entityManagerFactory.getCache();
+        for (SpotCornerDTO dto : cornerList) {
+            cache.evict(ParkingSpot.class, dto.getSpotId());
         }
+        spotQuadIndex.publish(lotIds, ordinals, corners);
+        spotGeometryService.invalidate();
+        logger.info("Saved image corners for {} spots", cornerList.size());
     }
 }
@@ -0,0 +1,73 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.zakariafarih.parkingmanager.payload.ParkingUpdateMessage;
+import org.zakariafarih.parkingmanager.payload.SpotStateDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes spot state changes on /topic/parking-updates as sequenced deltas.
+ * Snapshots and deltas share one sequence so a client can tell which deltas
+ * a snapshot already includes.
+ */
+@Service
+public class ParkingUpdatePublisher {
+
+    public static final String TOPIC = "/topic/parking-updates";
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private long sequence;
+
+    /**
+     * Broadcasts the current state of the given spot ordinals as one DELTA.
+     */
+    public synchronized void publishDelta(int[] ordinals) {
+        if (ordinals.length == 0) {
+            return;
+        }
+        List<SpotStateDTO> spots = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            spots.add(toState(ordinal));
+        }
+        messagingTemplate.convertAndSend(TOPIC,
+                new ParkingUpdateMessage(ParkingUpdateMessage.Type.DELTA, ++sequence, spots));
+    }
+
+    /**
+     * Broadcasts a single spot, looked up by its DB id.
+     */
+    public void publishSpot(long spotId) {
+        int ordinal = occupancyStateStore.ordinalOfId(spotId);
+        if (ordinal >= 0) {
+            publishDelta(new int[]{ordinal});
+        }
+    }
+
+    /**
+     * Full state of the lot, stamped with the sequence of the last delta it includes.
+     */
+    public synchronized ParkingUpdateMessage snapshot() {
+        int spotCount = occupancyStateStore.size();
+        List<SpotStateDTO> spots = new ArrayList<>(spotCount);
+        for (int ordinal = 0; ordinal < spotCount; ordinal++) {
+            spots.add(toState(ordinal));
+        }
+        return new ParkingUpdateMessage(ParkingUpdateMessage.Type.SNAPSHOT, sequence, spots);
+    }
+
+    private SpotStateDTO toState(int ordinal) {
+        return new SpotStateDTO(
+                occupancyStateStore.labelAt(ordinal),
+                occupancyStateStore.statusAt(ordinal),
+                occupancyStateStore.isOccupied(ordinal));
+    }
+}
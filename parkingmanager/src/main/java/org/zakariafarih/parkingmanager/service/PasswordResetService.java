@@ -7,6 +7,7 @@ import org.zakariafarih.parkingmanager.model.PasswordResetToken;
 import org.zakariafarih.parkingmanager.model.User;
 import org.zakariafarih.parkingmanager.repository.PasswordResetTokenRepository;
 import org.zakariafarih.parkingmanager.repository.UserRepository;
+import org.zakariafarih.parkingmanager.security.CustomUserDetailsService;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -28,6 +29,9 @@ public class PasswordResetService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
     public void createPasswordResetToken(String email) {
         Optional<User> userOpt = userRepository.findByEmail(email);
         if (!userOpt.isPresent()) {
@@ -79,6 +83,7 @@ public class PasswordResetService {
         User user = resetToken.getUser();
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        customUserDetailsService.evictUser(user.getId());
         tokenRepository.delete(resetToken);
     }
 }
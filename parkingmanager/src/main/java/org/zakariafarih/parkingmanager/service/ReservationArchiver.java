@@ -0,0 +1,159 @@
+package org.zakariafarih.parkingmanager.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves completed reservations from {@code reservations} into {@code reservation_history}
+ * in chunks, each chunk copied and deleted in its own short transaction, so the hot table
+ * only holds current and future rows.
+ *
+ * Every instance runs the archiver, so a run first takes the MySQL named lock
+ * {@value #LOCK_NAME} (GET_LOCK, held by its own connection for the whole run). An
+ * instance that finds the lock taken skips that run instead of copying the same rows twice.
+ */
+@Component
+public class ReservationArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationArchiver.class);
+
+    private static final String LOCK_NAME = "parking_manager.reservation_archiver";
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id FROM reservations WHERE end_time < ? ORDER BY end_time LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${parking.archive.retain-hours:24}")
+    private long retainHours;
+
+    @Value("${parking.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${parking.archive.interval-minutes:60}")
+    private long intervalMinutes;
+
+    private ScheduledExecutorService executor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reservation-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::runSafely, 1, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Archives every reservation that ended more than the retention period ago.
+     *
+     * @return number of reservations moved (0 when another instance is archiving).
+     */
+    public int archiveCompleted() {
+        Integer total = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            if (!tryLock(connection)) {
+                logger.debug("Reservation archival skipped: another instance holds the lock");
+                return 0;
+            }
+            try {
+                return archiveChunks();
+            } finally {
+                releaseLock(connection);
+            }
+        });
+        return total == null ? 0 : total;
+    }
+
+    private int archiveChunks() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(retainHours));
+        Timestamp archivedAt = Timestamp.valueOf(LocalDateTime.now());
+        int total = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK_SQL, Long.class, cutoff, chunkSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+                Object[] args = ids.toArray();
+                Object[] copyArgs = new Object[args.length + 1];
+                copyArgs[0] = archivedAt;
+                System.arraycopy(args, 0, copyArgs, 1, args.length);
+                jdbcTemplate.update("INSERT INTO reservation_history " +
+                        "(id, user_id, parking_spot_id, start_time, end_time, archived_at) " +
+                        "SELECT id, user_id, parking_spot_id, start_time, end_time, ? " +
+                        "FROM reservations WHERE id IN (" + in + ")", copyArgs);
+                jdbcTemplate.update("DELETE FROM reservations WHERE id IN (" + in + ")", args);
+                return ids.size();
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
+            total += moved;
+            if (moved < chunkSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("Archived {} completed reservations to reservation_history", total);
+        }
+        return total;
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.execute();
+        }
+    }
+
+    private void runSafely() {
+        try {
+            archiveCompleted();
+        } catch (RuntimeException ex) {
+            logger.error("Reservation archival failed: {}", ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package org.zakariafarih.parkingmanager.service;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zakariafarih.parkingmanager.model.ParkingSpot;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.model.User;
+import org.zakariafarih.parkingmanager.payload.BatchReservationResultDTO;
+import org.zakariafarih.parkingmanager.payload.ReservationRequest;
+import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+import org.zakariafarih.parkingmanager.repository.ReservationRepository;
+import org.zakariafarih.parkingmanager.repository.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Creates many reservations for one user in a single pass: spots are loaded in one query,
+ * conflicts (against existing reservations and inside the batch) are found with a
+ * per-spot sweep over intervals sorted by start, and accepted rows are inserted with one
+ * JDBC batch inside one transaction, together with the RESERVED status of spots whose
+ * reservation starts soon. As for single reservations, the sweep uses this instance's
+ * interval index as a fast pre-check and the transaction re-checks in the DB under
+ * the spots' row locks.
+ */
+@Service
+public class ReservationBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationBatchService.class);
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final String INSERT_SQL =
+            "INSERT INTO reservations (user_id, parking_spot_id, start_time, end_time) VALUES (?, ?, ?, ?)";
+    private static final String RESERVE_SQL = "UPDATE parking_spots SET status = 'RESERVED' WHERE id = ?";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ReservationIntervalIndex reservationIntervalIndex;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private ReservationLifecycleScheduler reservationLifecycleScheduler;
+
+    @Autowired
+    private ParkingUpdatePublisher parkingUpdatePublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * In all-or-nothing mode nothing is inserted if any request is rejected. In best-effort
+     * mode the valid requests are inserted; when batch requests collide on a spot the one
+     * starting first wins (ties go to the earlier request).
+     */
+    public BatchReservationResultDTO createReservations(Long userId,
+                                                        List<ReservationRequest> requests,
+                                                        boolean allOrNothing) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("At most " + MAX_BATCH_SIZE + " reservations per batch");
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found with ID=" + userId));
+
+        int n = requests.size();
+        String[] errors = new String[n];
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Long, ParkingSpot> spots = new HashMap<>();
+        List<Long> spotIds = requests.stream().map(ReservationRequest::getParkingSpotId).distinct().toList();
+        for (ParkingSpot spot : parkingSpotRepository.findAllById(spotIds)) {
+            spots.put(spot.getId(), spot);
+        }
+
+        // requests grouped by spot; bad requests are rejected before the sweep
+        Map<Long, List<Integer>> bySpot = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ReservationRequest r = requests.get(i);
+            ParkingSpot spot = spots.get(r.getParkingSpotId());
+            if (spot == null) {
+                errors[i] = "Parking spot not found with ID=" + r.getParkingSpotId();
+            } else if (r.getEndTime().isBefore(r.getStartTime())) {
+                errors[i] = "End time cannot be before start time";
+            } else if (r.getStartTime().isBefore(now)) {
+                errors[i] = "Cannot create a reservation that starts in the past";
+            } else if (!ReservationService.canReserve(user.getRole(), spot.getCategory())) {
+                errors[i] = "Not allowed to reserve " + spot.getCategory() + " spot " + spot.getLabel();
+            } else {
+                bySpot.computeIfAbsent(spot.getId(), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        long[] spotOrder = bySpot.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] createdIds = new long[n];
+        // spot locks are taken in id order so concurrent batches cannot deadlock
+        withSpotLocks(spotOrder, 0, () -> {
+            for (long spotId : spotOrder) {
+                sweep(spotId, requests, bySpot.get(spotId), errors);
+            }
+            if (allOrNothing && firstError(errors) >= 0) {
+                return null;
+            }
+            List<Long> startingSoon = insertAccepted(user.getId(), requests, errors, createdIds, allOrNothing, now);
+            if (allOrNothing && firstError(errors) >= 0) {
+                return null; // another instance booked one of the spots first
+            }
+            for (int i = 0; i < n; i++) {
+                if (errors[i] == null) {
+                    ReservationRequest r = requests.get(i);
+                    reservationIntervalIndex.add(r.getParkingSpotId(), createdIds[i], r.getStartTime(), r.getEndTime());
+                    reservationLifecycleScheduler.schedule(createdIds[i], r.getParkingSpotId(), r.getStartTime(), r.getEndTime());
+                }
+            }
+            publishReserved(startingSoon);
+            return null;
+        });
+
+        boolean failed = allOrNothing && firstError(errors) >= 0;
+
+        List<BatchReservationResultDTO.Item> items = new ArrayList<>(n);
+        int created = 0;
+        for (int i = 0; i < n; i++) {
+            String error = errors[i];
+            if (error == null && failed) {
+                error = "Not created: another reservation in the batch was rejected";
+            }
+            Long reservationId = error == null ? createdIds[i] : null;
+            if (reservationId != null) {
+                created++;
+            }
+            items.add(new BatchReservationResultDTO.Item(i, requests.get(i).getParkingSpotId(), reservationId, error));
+        }
+        logger.info("Batch reservation for user={}: {} created, {} rejected", user.getEmail(), created, n - created);
+        return new BatchReservationResultDTO(created, n - created, items);
+    }
+
+    /**
+     * Sweep over one spot's existing reservations plus its batch requests, all sorted by start.
+     * Intervals are half-open [start, end), like single reservations: back-to-back bookings fit.
+     */
+    private void sweep(long spotId, List<ReservationRequest> requests, List<Integer> batch, String[] errors) {
+        long windowStart = Long.MAX_VALUE;
+        long windowEnd = Long.MIN_VALUE;
+        int m = batch.size();
+        long[] starts = new long[m];
+        long[] ends = new long[m];
+        for (int k = 0; k < m; k++) {
+            ReservationRequest r = requests.get(batch.get(k));
+            starts[k] = ReservationIntervalIndex.toMillis(r.getStartTime());
+            ends[k] = ReservationIntervalIndex.toMillis(r.getEndTime());
+            windowStart = Math.min(windowStart, starts[k]);
+            windowEnd = Math.max(windowEnd, ends[k]);
+        }
+        long[] existing = reservationIntervalIndex.intervalsTouching(spotId,
+                ReservationIntervalIndex.fromMillis(windowStart), ReservationIntervalIndex.fromMillis(windowEnd));
+
+        Integer[] order = new Integer[m];
+        for (int k = 0; k < m; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> starts[a] != starts[b] ? Long.compare(starts[a], starts[b]) : Integer.compare(a, b));
+
+        int e = 0;                         // next existing interval not yet passed
+        long existingMaxEnd = Long.MIN_VALUE;
+        long acceptedMaxEnd = Long.MIN_VALUE;
+        for (Integer k : order) {
+            while (e < existing.length && existing[e] <= starts[k]) {
+                existingMaxEnd = Math.max(existingMaxEnd, existing[e + 1]);
+                e += 2;
+            }
+            boolean clashesExisting = existingMaxEnd > starts[k]
+                    || (e < existing.length && existing[e] < ends[k]);
+            if (clashesExisting) {
+                errors[batch.get(k)] = "Parking spot is already reserved in that time range";
+            } else if (acceptedMaxEnd > starts[k]) {
+                errors[batch.get(k)] = "Overlaps another reservation in the same batch";
+            } else {
+                acceptedMaxEnd = ends[k];
+            }
+        }
+    }
+
+    /**
+     * In one transaction: row-locks the accepted requests' spots, re-checks them against the
+     * reservations in the DB (which also holds bookings made by other instances, unknown to
+     * this instance's index), inserts the requests that still fit and marks spots whose
+     * reservation starts soon RESERVED, so a committed reservation never lacks its spot status.
+     * Requests rejected by the re-check get an error; in all-or-nothing mode nothing is
+     * inserted then.
+     *
+     * @return ids of the spots marked RESERVED.
+     */
+    private List<Long> insertAccepted(Long userId, List<ReservationRequest> requests, String[] errors,
+                                      long[] createdIds, boolean allOrNothing, LocalDateTime now) {
+        Set<Long> spotIds = new TreeSet<>();
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (int i = 0; i < requests.size(); i++) {
+            if (errors[i] == null) {
+                ReservationRequest r = requests.get(i);
+                spotIds.add(r.getParkingSpotId());
+                from = from == null || r.getStartTime().isBefore(from) ? r.getStartTime() : from;
+                to = to == null || r.getEndTime().isAfter(to) ? r.getEndTime() : to;
+            }
+        }
+        if (spotIds.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime windowStart = from;
+        LocalDateTime windowEnd = to;
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        int[] accepted = new int[requests.size()];
+        List<Long> startingSoon = transactionTemplate.execute(status -> {
+            // first statement: the overlap query below then sees every reservation committed before the lock
+            parkingSpotRepository.lockByIds(spotIds);
+            recheck(reservationRepository.findIntervalsOfSpotsBetween(spotIds, windowStart, windowEnd), requests, errors);
+            if (allOrNothing && firstError(errors) >= 0) {
+                return List.of();
+            }
+            int count = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                if (errors[i] == null) {
+                    accepted[count++] = i;
+                }
+            }
+            if (count == 0) {
+                return List.of();
+            }
+            int size = count;
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int j) throws SQLException {
+                            ReservationRequest r = requests.get(accepted[j]);
+                            ps.setLong(1, userId);
+                            ps.setLong(2, r.getParkingSpotId());
+                            ps.setTimestamp(3, Timestamp.valueOf(r.getStartTime()));
+                            ps.setTimestamp(4, Timestamp.valueOf(r.getEndTime()));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    },
+                    keys);
+            List<Long> soon = startingSoon(requests, errors, now);
+            if (!soon.isEmpty()) {
+                // status only: the camera-reported occupied flag stays as it is
+                jdbcTemplate.batchUpdate(RESERVE_SQL, soon.stream().map(id -> new Object[] {id}).toList());
+            }
+            return soon;
+        });
+        // the UPDATE bypassed Hibernate, so drop just those cached spots
+        Cache cache = entityManagerFactory.getCache();
+        for (Long spotId : startingSoon) {
+            cache.evict(ParkingSpot.class, spotId);
+        }
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int j = 0; j < keyList.size(); j++) {
+            createdIds[accepted[j]] = ((Number) keyList.get(j).values().iterator().next()).longValue();
+        }
+        return startingSoon;
+    }
+
+    /**
+     * Rejects accepted requests that overlap a stored reservation ([spotId, start, end] rows).
+     */
+    private static void recheck(List<Object[]> stored, List<ReservationRequest> requests, String[] errors) {
+        Map<Long, List<Object[]>> bySpot = new HashMap<>();
+        for (Object[] row : stored) {
+            bySpot.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add(row);
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            ReservationRequest r = requests.get(i);
+            if (errors[i] != null) {
+                continue;
+            }
+            for (Object[] row : bySpot.getOrDefault(r.getParkingSpotId(), List.of())) {
+                if (((LocalDateTime) row[2]).isAfter(r.getStartTime()) && ((LocalDateTime) row[1]).isBefore(r.getEndTime())) {
+                    errors[i] = "Parking spot is already reserved in that time range";
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Same rule as single reservations: a spot whose reservation starts within 5 minutes
+     * is marked RESERVED right away. Returns those spot ids (distinct) of accepted requests.
+     */
+    private static List<Long> startingSoon(List<ReservationRequest> requests, String[] errors, LocalDateTime now) {
+        LocalDateTime soon = now.plusMinutes(5);
+        Set<Long> spotIds = new LinkedHashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ReservationRequest r = requests.get(i);
+            if (errors[i] == null && r.getStartTime().isBefore(soon)) {
+                spotIds.add(r.getParkingSpotId());
+            }
+        }
+        return new ArrayList<>(spotIds);
+    }
+
+    /**
+     * Syncs the occupancy store with spots already marked RESERVED in the DB, with one
+     * broadcast for all of them.
+     */
+    private void publishReserved(List<Long> spotIds) {
+        if (spotIds.isEmpty()) {
+            return;
+        }
+        int[] ordinals = new int[spotIds.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = occupancyStateStore.updateStatus(spotIds.get(i), ParkingStatus.RESERVED);
+        }
+        parkingUpdatePublisher.publishDelta(ordinals);
+    }
+
+    private <T> T withSpotLocks(long[] spotIds, int from, Supplier<T> body) {
+        if (from == spotIds.length) {
+            return body.get();
+        }
+        synchronized (reservationIntervalIndex.lockFor(spotIds[from])) {
+            return withSpotLocks(spotIds, from + 1, body);
+        }
+    }
+
+    private static int firstError(String[] errors) {
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,135 @@
+package org.zakariafarih.parkingmanager.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Streams reservations as flat rows (no entity graph) straight from a forward-only
+ * JDBC cursor to an output stream, so memory use does not depend on the row count.
+ * Archived reservations come first, then the hot table, each in id order; the two
+ * tables are separate queries so MySQL never has to sort their union before streaming.
+ */
+@Service
+public class ReservationExportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    // archived first (older ids), then hot reservations; no index leads with start_time,
+    // so each query is a primary-key scan and ORDER BY id needs no sort
+    private static final String[] TABLES = {"reservation_history", "reservations"};
+    private static final String EXPORT_SQL =
+            "SELECT r.id, r.start_time, r.end_time, u.id, u.email, p.id, p.label FROM %s r " +
+            "JOIN users u ON u.id = r.user_id " +
+            "JOIN parking_spots p ON p.id = r.parking_spot_id " +
+            "WHERE r.start_time >= ? AND r.start_time < ? " +
+            "ORDER BY r.id";
+
+    private static final String[] COLUMNS =
+            {"id", "startTime", "endTime", "userId", "userEmail", "parkingSpotId", "parkingSpotLabel"};
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ReservationExportService(DataSource dataSource, ObjectMapper objectMapper) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // MySQL Connector/J streams rows one at a time only with this fetch size
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every reservation starting in [from, to) to {@code out}.
+     */
+    public void export(Format format, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            if (format == Format.CSV) {
+                writer.write(String.join(",", COLUMNS));
+                writer.write('\n');
+                for (String table : TABLES) {
+                    streamingJdbcTemplate.query(EXPORT_SQL.formatted(table),
+                            (RowCallbackHandler) rs -> writeCsvRow(rs, writer), from, to);
+                }
+            } else {
+                JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+                // lines are separated by '\n' only, not the default ' ' between root values
+                json.setRootValueSeparator(null);
+                for (String table : TABLES) {
+                    streamingJdbcTemplate.query(EXPORT_SQL.formatted(table),
+                            (RowCallbackHandler) rs -> writeJsonRow(rs, json, writer), from, to);
+                }
+                json.flush();
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeJsonRow(ResultSet rs, JsonGenerator json, Writer writer) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeNumberField(COLUMNS[0], rs.getLong(1));
+            json.writeStringField(COLUMNS[1], String.valueOf(rs.getObject(2, LocalDateTime.class)));
+            json.writeStringField(COLUMNS[2], String.valueOf(rs.getObject(3, LocalDateTime.class)));
+            json.writeNumberField(COLUMNS[3], rs.getLong(4));
+            json.writeStringField(COLUMNS[4], rs.getString(5));
+            json.writeNumberField(COLUMNS[5], rs.getLong(6));
+            json.writeStringField(COLUMNS[6], rs.getString(7));
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeCsvRow(ResultSet rs, Writer writer) throws SQLException {
+        try {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            writer.write(String.valueOf(rs.getObject(2, LocalDateTime.class)));
+            writer.write(',');
+            writer.write(String.valueOf(rs.getObject(3, LocalDateTime.class)));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong(4)));
+            writer.write(',');
+            writer.write(csv(rs.getString(5)));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong(6)));
+            writer.write(',');
+            writer.write(csv(rs.getString(7)));
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
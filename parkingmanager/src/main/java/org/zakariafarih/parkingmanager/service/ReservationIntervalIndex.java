@@ -0,0 +1,331 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.zakariafarih.parkingmanager.repository.ReservationRepository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of current and future reservations, one sorted interval list per spot.
+ *
+ * Times are stored as epoch millis (of the naive LocalDateTime, read as UTC) in primitive
+ * arrays sorted by start. A running maximum of end times lets overlap and
+ * "active at" checks binary-search instead of scanning, even if legacy data holds
+ * overlapping reservations. Intervals are half-open [start, end): a reservation may
+ * start exactly when another one ends. Loaded once at startup and kept in sync by
+ * {@link ReservationService} on create/cancel; every change invalidates the spot's
+ * entries in the {@link AvailabilityCache}.
+ */
+@Component
+public class ReservationIntervalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationIntervalIndex.class);
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    private final ConcurrentHashMap<Long, SpotIntervals> spots = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        ensureLoaded();
+    }
+
+    /**
+     * Monitor to hold while checking and then inserting a reservation for one spot.
+     */
+    public Object lockFor(long spotId) {
+        return intervals(spotId);
+    }
+
+    public void add(long spotId, long reservationId, LocalDateTime start, LocalDateTime end) {
+        intervals(spotId).add(reservationId, toMillis(start), toMillis(end));
+        availabilityCache.invalidate(spotId);
+    }
+
+    public void remove(long spotId, long reservationId) {
+        intervals(spotId).remove(reservationId);
+        availabilityCache.invalidate(spotId);
+    }
+
+    /**
+     * True if [start, end) overlaps any reservation of the spot; back-to-back bookings
+     * (one ending exactly when the other starts) do not overlap.
+     */
+    public boolean overlaps(long spotId, LocalDateTime start, LocalDateTime end) {
+        return intervals(spotId).overlaps(toMillis(start), toMillis(end));
+    }
+
+    /**
+     * Id of the reservation with start &lt; at &lt; end, or null.
+     */
+    public Long activeReservationId(long spotId, LocalDateTime at) {
+        return intervals(spotId).activeAt(toMillis(at));
+    }
+
+    /**
+     * Free gaps of the spot inside [windowStart, windowEnd].
+     */
+    public List<AvailabilityService.TimeInterval> freeIntervals(long spotId,
+                                                                LocalDateTime windowStart,
+                                                                LocalDateTime windowEnd) {
+        return intervals(spotId).free(toMillis(windowStart), toMillis(windowEnd));
+    }
+
+    /**
+     * How loosely [start, end] fits the free gap around it: time left free before plus after
+     * the window, each side capped at {@code maxSideMillis} (also used when there is no
+     * reservation on that side). Returns -1 if the window is not free.
+     */
+    public long gapSlackMillis(long spotId, LocalDateTime start, LocalDateTime end, long maxSideMillis) {
+        return intervals(spotId).slack(toMillis(start), toMillis(end), maxSideMillis);
+    }
+
+    /**
+     * Reservations of the spot that overlap [start, end) (half-open), as flattened
+     * {@code [start0, end0, start1, end1, ...]} epoch millis sorted by start.
+     */
+    public long[] intervalsTouching(long spotId, LocalDateTime start, LocalDateTime end) {
+        return intervals(spotId).touching(toMillis(start), toMillis(end));
+    }
+
+    /**
+     * Passes every indexed reservation ending after {@code after} to {@code visitor}, spot
+     * by spot; loads the index first if needed. Lets startup consumers (the lifecycle
+     * scheduler) reuse the index's single load instead of scanning the table again.
+     */
+    public void forEachEndingAfter(LocalDateTime after, IntervalVisitor visitor) {
+        ensureLoaded();
+        long afterMillis = toMillis(after);
+        spots.forEach((spotId, intervals) -> intervals.forEachEndingAfter(afterMillis, (id, start, end) ->
+                visitor.visit(id, spotId, fromMillis(start), fromMillis(end))));
+    }
+
+    @FunctionalInterface
+    public interface IntervalVisitor {
+        void visit(long reservationId, long spotId, LocalDateTime start, LocalDateTime end);
+    }
+
+    @FunctionalInterface
+    private interface RawIntervalVisitor {
+        void visit(long reservationId, long start, long end);
+    }
+
+    private SpotIntervals intervals(long spotId) {
+        ensureLoaded();
+        return spots.computeIfAbsent(spotId, k -> new SpotIntervals());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            List<Object[]> rows = reservationRepository.findIntervalsEndingAfter(LocalDateTime.now());
+            for (Object[] row : rows) {
+                spots.computeIfAbsent((Long) row[1], k -> new SpotIntervals())
+                        .add((Long) row[0], toMillis((LocalDateTime) row[2]), toMillis((LocalDateTime) row[3]));
+            }
+            loaded = true;
+            logger.info("Reservation interval index loaded with {} reservations on {} spots", rows.size(), spots.size());
+        }
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static final class SpotIntervals {
+        private long[] starts = new long[4];
+        private long[] ends = new long[4];
+        private long[] maxEnds = new long[4];
+        private long[] ids = new long[4];
+        private int size;
+
+        synchronized void add(long id, long start, long end) {
+            pruneEndedBefore(toMillis(LocalDateTime.now()));
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                maxEnds = Arrays.copyOf(maxEnds, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            int at = lastStartAtOrBefore(start) + 1;
+            System.arraycopy(starts, at, starts, at + 1, size - at);
+            System.arraycopy(ends, at, ends, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            starts[at] = start;
+            ends[at] = end;
+            ids[at] = id;
+            size++;
+            rebuildMaxEnds(at);
+        }
+
+        synchronized void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(starts, i + 1, starts, i, size - i - 1);
+                    System.arraycopy(ends, i + 1, ends, i, size - i - 1);
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    rebuildMaxEnds(i);
+                    return;
+                }
+            }
+        }
+
+        synchronized boolean overlaps(long start, long end) {
+            int idx = lastStartAtOrBefore(end - 1);
+            return idx >= 0 && maxEnds[idx] > start;
+        }
+
+        synchronized Long activeAt(long at) {
+            for (int i = lastStartAtOrBefore(at - 1); i >= 0 && maxEnds[i] > at; i--) {
+                if (ends[i] > at) {
+                    return ids[i];
+                }
+            }
+            return null;
+        }
+
+        synchronized long slack(long start, long end, long maxSide) {
+            int idx = lastStartAtOrBefore(end - 1);
+            if (idx >= 0 && maxEnds[idx] > start) {
+                return -1;
+            }
+            long before = idx >= 0 ? Math.min(maxSide, start - maxEnds[idx]) : maxSide;
+            long after = idx + 1 < size ? Math.min(maxSide, starts[idx + 1] - end) : maxSide;
+            return before + after;
+        }
+
+        synchronized long[] touching(long start, long end) {
+            int from = firstMaxEndAfter(start);
+            int to = lastStartAtOrBefore(end - 1);
+            long[] out = new long[Math.max(0, to - from + 1) * 2];
+            int n = 0;
+            for (int i = from; i <= to; i++) {
+                if (ends[i] > start) {
+                    out[n++] = starts[i];
+                    out[n++] = ends[i];
+                }
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+
+        synchronized List<AvailabilityService.TimeInterval> free(long windowStart, long windowEnd) {
+            List<AvailabilityService.TimeInterval> free = new ArrayList<>();
+            long currentStart = windowStart;
+            for (int i = firstMaxEndAfter(windowStart); i < size; i++) {
+                if (starts[i] > currentStart) {
+                    long gapEnd = Math.min(starts[i], windowEnd);
+                    if (gapEnd > currentStart) {
+                        free.add(new AvailabilityService.TimeInterval(fromMillis(currentStart), fromMillis(gapEnd)));
+                    }
+                }
+                if (ends[i] > currentStart) {
+                    currentStart = ends[i];
+                }
+                if (currentStart > windowEnd) {
+                    break;
+                }
+            }
+            if (currentStart < windowEnd) {
+                free.add(new AvailabilityService.TimeInterval(fromMillis(currentStart), fromMillis(windowEnd)));
+            }
+            return free;
+        }
+
+        /** Index of the last interval whose start is &lt;= time, or -1. */
+        private int lastStartAtOrBefore(long time) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= time) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return hi;
+        }
+
+        /** Index of the first interval whose running max end is &gt; time (size if none). */
+        private int firstMaxEndAfter(long time) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxEnds[mid] > time) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+
+        void forEachEndingAfter(long after, RawIntervalVisitor visitor) {
+            long[] copy;
+            int count;
+            synchronized (this) {
+                count = size;
+                copy = new long[count * 3];
+                for (int i = 0; i < count; i++) {
+                    copy[3 * i] = ids[i];
+                    copy[3 * i + 1] = starts[i];
+                    copy[3 * i + 2] = ends[i];
+                }
+            }
+            // visited outside the monitor, which is also the spot's booking lock
+            for (int i = 0; i < count; i++) {
+                if (copy[3 * i + 2] > after) {
+                    visitor.visit(copy[3 * i], copy[3 * i + 1], copy[3 * i + 2]);
+                }
+            }
+        }
+
+        private void pruneEndedBefore(long now) {
+            int cut = firstMaxEndAfter(now);
+            if (cut == 0) {
+                return;
+            }
+            System.arraycopy(starts, cut, starts, 0, size - cut);
+            System.arraycopy(ends, cut, ends, 0, size - cut);
+            System.arraycopy(ids, cut, ids, 0, size - cut);
+            size -= cut;
+            rebuildMaxEnds(0);
+        }
+
+        private void rebuildMaxEnds(int from) {
+            long max = from == 0 ? Long.MIN_VALUE : maxEnds[from - 1];
+            for (int i = from; i < size; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.zakariafarih.parkingmanager.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives reservation start/end status transitions from a hierarchical {@link TimingWheel}.
+ *
+ * Every current/future reservation gets two timers: one {@value #RESERVE_LEAD_MINUTES} minutes
+ * before its start (AVAILABLE -> RESERVED, the same lead createReservation uses) and one at
+ * its end (RESERVED -> AVAILABLE unless another reservation holds the spot). Timers due in a
+ * tick are applied to the occupancy store together and persisted/broadcast as one delta.
+ */
+@Component
+public class ReservationLifecycleScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationLifecycleScheduler.class);
+    private static final int RESERVE_LEAD_MINUTES = 5;
+
+    private record Transition(long reservationId, long spotId, boolean start) {
+    }
+
+    @Autowired
+    private ReservationIntervalIndex reservationIntervalIndex;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    // lazy: ParkingSpotService -> ReservationService -> this scheduler
+    @Autowired
+    @Lazy
+    private ParkingSpotService parkingSpotService;
+
+    @Value("${parking.lifecycle.tick-ms:1000}")
+    private long tickMillis;
+
+    private final Map<Long, TimingWheel.Timer<Transition>[]> timersByReservation = new HashMap<>();
+    private TimingWheel<Transition> wheel;
+    private ScheduledExecutorService ticker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        synchronized (this) {
+            ensureWheel();
+        }
+        // the interval index already loads every current/future reservation; no second scan.
+        // Not under this monitor: booking paths take a spot's index lock, then this one
+        reservationIntervalIndex.forEachEndingAfter(LocalDateTime.now(), this::schedule);
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reservation-lifecycle");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("Reservation lifecycle scheduler started with {} pending timers", pendingTimers());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers (or re-registers) the start and end transitions of a reservation.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void schedule(long reservationId, long spotId, LocalDateTime start, LocalDateTime end) {
+        ensureWheel();
+        cancel(reservationId);
+        TimingWheel.Timer<Transition>[] timers = new TimingWheel.Timer[] {
+                wheel.schedule(new Transition(reservationId, spotId, true), toTick(start.minusMinutes(RESERVE_LEAD_MINUTES))),
+                wheel.schedule(new Transition(reservationId, spotId, false), toTick(end))
+        };
+        timersByReservation.put(reservationId, timers);
+    }
+
+    public synchronized void cancel(long reservationId) {
+        TimingWheel.Timer<Transition>[] timers = timersByReservation.remove(reservationId);
+        if (timers != null) {
+            wheel.cancel(timers[0]);
+            wheel.cancel(timers[1]);
+        }
+    }
+
+    public synchronized int pendingTimers() {
+        return wheel == null ? 0 : wheel.size();
+    }
+
+    void tick() {
+        try {
+            List<Transition> due = new ArrayList<>();
+            synchronized (this) {
+                wheel.advanceTo(toTick(LocalDateTime.now()), timer -> {
+                    due.add(timer.payload);
+                    if (!timer.payload.start()) {
+                        timersByReservation.remove(timer.payload.reservationId());
+                    }
+                });
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            int changed = 0;
+            for (Transition transition : due) {
+                int ordinal = occupancyStateStore.ordinalOfId(transition.spotId());
+                if (ordinal < 0) {
+                    continue;
+                }
+                ParkingStatus status = occupancyStateStore.statusAt(ordinal);
+                if (transition.start()) {
+                    if (status == ParkingStatus.AVAILABLE
+                            && occupancyStateStore.applyStatus(ordinal, ParkingStatus.RESERVED)) {
+                        changed++;
+                    }
+                } else if (status == ParkingStatus.RESERVED
+                        && !reservationIntervalIndex.overlaps(transition.spotId(), now.plusSeconds(1),
+                                now.plusMinutes(RESERVE_LEAD_MINUTES))
+                        && occupancyStateStore.applyStatus(ordinal, ParkingStatus.AVAILABLE)) {
+                    changed++;
+                }
+            }
+            if (changed > 0) {
+                parkingSpotService.commitOccupancyChanges();
+            }
+            logger.debug("Lifecycle tick fired {} transitions, {} spots changed", due.size(), changed);
+        } catch (RuntimeException ex) {
+            // keep ticking: an exception would cancel the fixed-rate task
+            logger.error("Reservation lifecycle tick failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void ensureWheel() {
+        if (wheel == null) {
+            wheel = new TimingWheel<>(toTick(LocalDateTime.now()));
+        }
+    }
+
+    private long toTick(LocalDateTime time) {
+        return Math.floorDiv(ReservationIntervalIndex.toMillis(time) + tickMillis - 1, tickMillis);
+    }
+}
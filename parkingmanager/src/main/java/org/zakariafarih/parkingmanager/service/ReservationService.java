@@ -3,16 +3,23 @@ package org.zakariafarih.parkingmanager.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.zakariafarih.parkingmanager.model.*;
+import org.zakariafarih.parkingmanager.payload.ReservationViewDTO;
 import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+import org.zakariafarih.parkingmanager.repository.ReservationHistoryRepository;
 import org.zakariafarih.parkingmanager.repository.ReservationRepository;
 import org.zakariafarih.parkingmanager.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Handles reservation creation, checks role constraints, overlapping times,
@@ -23,15 +30,36 @@ public class ReservationService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReservationService.class);
 
+    // keyset cursor that sorts before every reservation
+    private static final LocalDateTime KEYSET_ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     @Autowired
     private ReservationRepository reservationRepository;
 
+    @Autowired
+    private ReservationHistoryRepository reservationHistoryRepository;
+
     @Autowired
     private ParkingSpotRepository parkingSpotRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private ParkingUpdatePublisher parkingUpdatePublisher;
+
+    @Autowired
+    private ReservationIntervalIndex reservationIntervalIndex;
+
+    @Autowired
+    private ReservationLifecycleScheduler reservationLifecycleScheduler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Creates a reservation for a given user on a given spot, checking:
      *  - Time window is valid (end after start, start not in the past).
@@ -59,41 +87,79 @@ public class ReservationService {
                 .orElseThrow(() -> new RuntimeException("Parking spot not found with ID=" + parkingSpotId));
 
         ParkingSpotCategory category = spot.getCategory();
-        if (category == ParkingSpotCategory.VIP &&
-                !(user.getRole() == Role.ROLE_VIP || user.getRole() == Role.ROLE_ADMIN)) {
-            throw new RuntimeException("Only VIP or Admin can reserve VIP spots");
-        }
-        if (category == ParkingSpotCategory.PERSONAL &&
-                !(user.getRole() == Role.ROLE_PERSONNEL || user.getRole() == Role.ROLE_ADMIN)) {
+        if (!canReserve(user.getRole(), category)) {
+            if (category == ParkingSpotCategory.VIP) {
+                throw new RuntimeException("Only VIP or Admin can reserve VIP spots");
+            }
             throw new RuntimeException("Only PERSONNEL or Admin can reserve PERSONAL spots");
         }
 
-        if (hasOverlap(spot, startTime, endTime)) {
-            throw new RuntimeException("Parking spot is already reserved in that time range");
-        }
+        Reservation created;
+        // the index is a fast pre-check under this JVM's spot lock; the spot's row lock plus the
+        // overlap query inside the transaction is what stops other instances double booking.
+        // The index only learns about the reservation once it is committed
+        synchronized (reservationIntervalIndex.lockFor(spot.getId())) {
+            if (hasOverlap(spot, startTime, endTime)) {
+                throw new RuntimeException("Parking spot is already reserved in that time range");
+            }
 
-        Reservation reservation = Reservation.builder()
-                .user(user)
-                .parkingSpot(spot)
-                .startTime(startTime)
-                .endTime(endTime)
-                .build();
+            Reservation reservation = Reservation.builder()
+                    .user(user)
+                    .parkingSpot(spot)
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .build();
 
-        if (startTime.isBefore(LocalDateTime.now().plusMinutes(5))) {
-            spot.setStatus(ParkingStatus.RESERVED);
-            parkingSpotRepository.save(spot);
+            boolean startsSoon = startTime.isBefore(LocalDateTime.now().plusMinutes(5));
+            created = transactionTemplate.execute(status -> {
+                // first statement: the overlap query below then sees every reservation committed before the lock
+                parkingSpotRepository.lockByIds(List.of(spot.getId()));
+                if (reservationRepository.existsOverlapping(spot.getId(), startTime, endTime)) {
+                    throw new RuntimeException("Parking spot is already reserved in that time range");
+                }
+                if (startsSoon) {
+                    spot.setStatus(ParkingStatus.RESERVED);
+                    parkingSpotRepository.save(spot);
+                }
+                return reservationRepository.save(reservation);
+            });
+            reservationIntervalIndex.add(spot.getId(), created.getId(), startTime, endTime);
+            if (startsSoon) {
+                occupancyStateStore.update(spot);
+                parkingUpdatePublisher.publishSpot(spot.getId());
+            }
         }
-
-        Reservation created = reservationRepository.save(reservation);
+        reservationLifecycleScheduler.schedule(created.getId(), spot.getId(), startTime, endTime);
         logger.info("Created reservation {} for user={} on spot={}", created.getId(), user.getEmail(), spot.getLabel());
         return created;
     }
 
     /**
-     * Return all reservations in the database (for debugging or admin usage).
+     * Role constraints: VIP spots need VIP or Admin, PERSONAL spots need PERSONNEL or Admin.
+     */
+    public static boolean canReserve(Role role, ParkingSpotCategory category) {
+        if (category == ParkingSpotCategory.VIP) {
+            return role == Role.ROLE_VIP || role == Role.ROLE_ADMIN;
+        }
+        if (category == ParkingSpotCategory.PERSONAL) {
+            return role == Role.ROLE_PERSONNEL || role == Role.ROLE_ADMIN;
+        }
+        return true;
+    }
+
+    /**
+     * Spots under maintenance or held for personal use are out of circulation. RESERVED and
+     * OCCUPIED only describe the spot right now, so those stay bookable for other windows.
      */
-    public List<Reservation> getAllReservations() {
-        return reservationRepository.findAll();
+    public static boolean isBookable(ParkingStatus status) {
+        return status != ParkingStatus.UNDER_MAINTENANCE && status != ParkingStatus.PERSONAL_USE;
+    }
+
+    /**
+     * Return all active reservations (for debugging or admin usage), as lean views.
+     */
+    public List<ReservationViewDTO> getAllReservations() {
+        return reservationRepository.findAllViews();
     }
 
     public List<Reservation> getReservationsForSpot(Long spotId) {
@@ -102,25 +168,48 @@ public class ReservationService {
         return reservationRepository.findByParkingSpot(spot);
     }
 
-    public List<Reservation> getReservationsByUserId(Long userId) {
-        return reservationRepository.findAll().stream()
-                .filter(r -> r.getUser().getId().equals(userId))
-                .collect(Collectors.toList());
+    /**
+     * One page of a user's reservations (active and archived) ordered by (startTime, id),
+     * starting after the given cursor (null cursor = first page). Uses the
+     * (user_id, start_time) index of both tables.
+     */
+    public List<ReservationViewDTO> getReservationsByUserId(Long userId, LocalDateTime afterStart, Long afterId, int limit) {
+        LocalDateTime start = afterStart == null ? KEYSET_ORIGIN : afterStart;
+        long id = afterId == null ? 0L : afterId;
+        PageRequest page = PageRequest.of(0, limit);
+        return mergePages(reservationRepository.findPageByUser(userId, start, id, page),
+                reservationHistoryRepository.findPageByUser(userId, start, id, page), limit);
+    }
+
+    /**
+     * One page of a spot's reservations (past & future, including archived ones) ordered by
+     * (startTime, id), starting after the given cursor (null cursor = first page). Uses the
+     * (parking_spot_id, start_time) index of both tables.
+     */
+    public List<ReservationViewDTO> findAllBySpot(Long spotId, LocalDateTime afterStart, Long afterId, int limit) {
+        if (occupancyStateStore.ordinalOfId(spotId) < 0) {
+            throw new RuntimeException("Parking spot not found with ID=" + spotId);
+        }
+        LocalDateTime start = afterStart == null ? KEYSET_ORIGIN : afterStart;
+        long id = afterId == null ? 0L : afterId;
+        PageRequest page = PageRequest.of(0, limit);
+        return mergePages(reservationRepository.findPageBySpot(spotId, start, id, page),
+                reservationHistoryRepository.findPageBySpot(spotId, start, id, page), limit);
     }
 
     /**
-     * Returns ALL reservations for a given spot ID (past & future), sorted by startTime ascending.
+     * Merges a hot and an archived page (both sorted by startTime, id) into one page.
      */
-    public List<Reservation> findAllBySpot(Long spotId) {
-        ParkingSpot spot = parkingSpotRepository.findById(spotId)
-                .orElseThrow(() -> new RuntimeException("Parking spot not found with ID=" + spotId));
-
-        List<Reservation> all = reservationRepository.findAll();
-        // filter and sort
-        return all.stream()
-                .filter(r -> r.getParkingSpot().getId().equals(spot.getId()))
-                .sorted(Comparator.comparing(Reservation::getStartTime))
-                .toList();
+    private static List<ReservationViewDTO> mergePages(List<ReservationViewDTO> hot,
+                                                       List<ReservationViewDTO> archived, int limit) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<ReservationViewDTO> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(Comparator.comparing(ReservationViewDTO::getStartTime).thenComparing(ReservationViewDTO::getId));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
     }
 
     /**
@@ -136,47 +225,59 @@ public class ReservationService {
             throw new RuntimeException("You do not have permission to cancel this reservation");
         }
 
-        // if currently 'RESERVED', revert spot to 'AVAILABLE'
+        // if currently 'RESERVED', revert spot to 'AVAILABLE' (in the same transaction as the delete)
         ParkingSpot spot = reservation.getParkingSpot();
-        if (spot.getStatus() == ParkingStatus.RESERVED) {
-            spot.setStatus(ParkingStatus.AVAILABLE);
-            parkingSpotRepository.save(spot);
+        boolean release = spot.getStatus() == ParkingStatus.RESERVED;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (release) {
+                spot.setStatus(ParkingStatus.AVAILABLE);
+                parkingSpotRepository.save(spot);
+            }
+            reservationRepository.delete(reservation);
+        });
+        reservationIntervalIndex.remove(spot.getId(), reservation.getId());
+        reservationLifecycleScheduler.cancel(reservation.getId());
+        if (release) {
+            occupancyStateStore.update(spot);
+            parkingUpdatePublisher.publishSpot(spot.getId());
         }
-
-        reservationRepository.delete(reservation);
         logger.info("Cancelled reservation with ID={}", reservationId);
         return reservation;
     }
 
     /**
-     * Checks if [start, end) overlaps with any existing reservation for the same spot.
+     * Checks if [start, end) overlaps any reservation of the spot known to this instance.
      */
     private boolean hasOverlap(ParkingSpot spot, LocalDateTime start, LocalDateTime end) {
-        // get any reservation that ends after 'start' => potential overlap
-        List<Reservation> futureReservations = reservationRepository.findByParkingSpotAndEndTimeAfter(spot, start);
-        for (Reservation r : futureReservations) {
-            LocalDateTime rStart = r.getStartTime();
-            LocalDateTime rEnd = r.getEndTime();
-            boolean overlap = !(end.isBefore(rStart) || start.isAfter(rEnd));
-            if (overlap) return true;
+        return reservationIntervalIndex.overlaps(spot.getId(), start, end);
+    }
+
+    /**
+     * Bulk variant of {@link #getActiveReservationForSpot}: which of the given spots
+     * have a reservation active at {@code at}, answered from the interval index.
+     */
+    public Set<Long> getSpotIdsWithActiveReservation(Collection<Long> spotIds, LocalDateTime at) {
+        Set<Long> active = new HashSet<>();
+        for (Long spotId : spotIds) {
+            if (reservationIntervalIndex.activeReservationId(spotId, at) != null) {
+                active.add(spotId);
+            }
         }
-        return false;
+        return active;
     }
 
     /**
      * Helper to fetch the active reservation if the spot is occupied/reserved right now.
      */
     public Reservation getActiveReservationForSpot(Long spotId, LocalDateTime now) {
-        ParkingSpot spot = parkingSpotRepository.findById(spotId)
-                .orElseThrow(() -> new RuntimeException("Parking spot not found with ID=" + spotId));
-
-        List<Reservation> future = reservationRepository.findByParkingSpotAndEndTimeAfter(spot, now);
-        for (Reservation r : future) {
-            if (r.getStartTime().isBefore(now) && r.getEndTime().isAfter(now)) {
-                logger.info("Found active reservation={} for spot={}", r.getId(), spot.getId());
-                return r;
-            }
+        if (occupancyStateStore.ordinalOfId(spotId) < 0) {
+            throw new RuntimeException("Parking spot not found with ID=" + spotId);
+        }
+        Long activeId = reservationIntervalIndex.activeReservationId(spotId, now);
+        if (activeId == null) {
+            return null;
         }
-        return null;
+        logger.info("Found active reservation={} for spot={}", activeId, spotId);
+        return reservationRepository.findById(activeId).orElse(null);
     }
 }
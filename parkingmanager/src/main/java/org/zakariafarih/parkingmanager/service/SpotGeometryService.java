@@ -0,0 +1,114 @@
+package org.zakariafarih.parkingmanager.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves spot geometry (GeoJSON coordinates and camera image corners) as one immutable,
+ * precomputed JSON blob with a gzip copy and strong ETags.
+ *
+ * Geometry only changes when the layout is edited, so the blob is built once from a
+ * projection query and rebuilt lazily after {@link #invalidate()}.
+ */
+@Service
+public class SpotGeometryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpotGeometryService.class);
+
+    /**
+     * One immutable version of the geometry document.
+     */
+    public record Blob(byte[] json, byte[] gzip, String etag, String gzipEtag) {
+    }
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile Blob current;
+
+    public Blob current() {
+        Blob blob = current;
+        if (blob == null) {
+            synchronized (this) {
+                blob = current;
+                if (blob == null) {
+                    blob = build();
+                    current = blob;
+                }
+            }
+        }
+        return blob;
+    }
+
+    /**
+     * Drops the blob after a spot's coordinates or image corners changed.
+     */
+    public void invalidate() {
+        current = null;
+    }
+
+    private Blob build() {
+        List<Object[]> rows = parkingSpotRepository.findGeometries();
+        ByteArrayOutputStream json = new ByteArrayOutputStream(rows.size() * 512);
+        // same field names/types as the ParkingSpot JSON, so clients can merge it with /summary by id
+        try (JsonGenerator out = objectMapper.getFactory().createGenerator(json)) {
+            out.writeStartArray();
+            for (Object[] row : rows) {
+                out.writeStartObject();
+                out.writeNumberField("id", (Long) row[0]);
+                out.writeStringField("label", (String) row[1]);
+                out.writeStringField("coordinates", (String) row[2]);
+                out.writeStringField("imageCoordinates", (String) row[3]);
+                if (row[4] == null) {
+                    out.writeNullField("imageLotId");
+                } else {
+                    out.writeNumberField("imageLotId", (Integer) row[4]);
+                }
+                out.writeEndObject();
+            }
+            out.writeEndArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        byte[] bytes = json.toByteArray();
+        byte[] gzip = gzip(bytes);
+        String hash = sha256(bytes);
+        logger.info("Built spot geometry blob: {} spots, {} bytes ({} gzipped)", rows.size(), bytes.length, gzip.length);
+        return new Blob(bytes, gzip, "\"" + hash + "\"", "\"" + hash + "-gz\"");
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
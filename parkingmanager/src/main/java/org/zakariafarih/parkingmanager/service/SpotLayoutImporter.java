@@ -0,0 +1,217 @@
+package org.zakariafarih.parkingmanager.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zakariafarih.parkingmanager.model.ParkingSpot;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.payload.LayoutImportResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports a spot layout from GeoJSON (a FeatureCollection whose features carry
+ * {@code properties.spot_id} and optionally {@code properties.type}).
+ *
+ * Features are read one at a time with a streaming parser and diffed against a
+ * label -> id map loaded with one query; existing spots are (optionally) updated in
+ * JDBC batches as they are read, new ones are inserted in JDBC batches at the end in
+ * ascending numeric label order, so DB ids (and with them the occupancy ordinals and
+ * the binary frame bit layout) follow the labels, not the file order. The whole import
+ * is one transaction. Used at startup and by the admin upload.
+ */
+@Service
+public class SpotLayoutImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpotLayoutImporter.class);
+    private static final int BATCH_SIZE = 1000;
+    // spots 1..69 are in the camera-controlled zone
+    private static final int MAX_CONTROLLED = 69;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO parking_spots (label, category, status, coordinates, controlled, occupied) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL =
+            "UPDATE parking_spots SET category = ?, coordinates = ?, controlled = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private SpotGeometryService spotGeometryService;
+
+    /**
+     * @param updateExisting false: only insert spots whose label is new (startup behaviour);
+     *                       true: also rewrite category/geometry of existing labels.
+     */
+    public LayoutImportResultDTO importLayout(InputStream in, boolean updateExisting) throws IOException {
+        long started = System.currentTimeMillis();
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> {
+                try {
+                    return write(in, updateExisting);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        int features = counts[0];
+        int inserted = counts[1];
+        int updated = counts[2];
+        int unchanged = counts[3];
+        int skipped = counts[4];
+
+        if (inserted > 0 || updated > 0) {
+            // rows were written behind Hibernate's back
+            entityManagerFactory.getCache().evict(ParkingSpot.class);
+            occupancyStateStore.refreshLayout();
+            spotGeometryService.invalidate();
+        }
+        long elapsed = System.currentTimeMillis() - started;
+        logger.info("Layout import: {} features, {} inserted, {} updated, {} unchanged, {} skipped in {} ms",
+                features, inserted, updated, unchanged, skipped, elapsed);
+        return new LayoutImportResultDTO(features, inserted, updated, unchanged, skipped, elapsed);
+    }
+
+    /**
+     * Runs inside the import transaction.
+     *
+     * @return {features, inserted, updated, unchanged, skipped}
+     */
+    private int[] write(InputStream in, boolean updateExisting) throws IOException {
+        Map<String, Long> idsByLabel = new HashMap<>();
+        jdbcTemplate.query("SELECT label, id FROM parking_spots",
+                rs -> { idsByLabel.put(rs.getString(1), rs.getLong(2)); });
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        int features = 0;
+        int inserted = 0;
+        int updated = 0;
+        int unchanged = 0;
+        int skipped = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (!seekFeatures(parser)) {
+                throw new RuntimeException("GeoJSON has no features array");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode feature = parser.readValueAsTree();
+                features++;
+                JsonNode props = feature.get("properties");
+                if (props == null || !props.hasNonNull("spot_id")) {
+                    skipped++;
+                    continue;
+                }
+                String label = props.get("spot_id").asText();
+                String category = category(props).name();
+                String geometry = objectMapper.writeValueAsString(feature.get("geometry"));
+                boolean controlled = isControlled(label);
+
+                Long id = idsByLabel.get(label);
+                if (id == null) {
+                    inserts.add(new Object[] {label, category, ParkingStatus.AVAILABLE.name(), geometry, controlled, false});
+                    idsByLabel.put(label, -1L); // later duplicates in the file are ignored (counted as unchanged)
+                } else if (updateExisting && id > 0) {
+                    updates.add(new Object[] {category, geometry, controlled, id});
+                    if (updates.size() == BATCH_SIZE) {
+                        updated += flush(UPDATE_SQL, updates);
+                    }
+                } else {
+                    unchanged++;
+                }
+            }
+        }
+        updated += flush(UPDATE_SQL, updates);
+
+        // stable sort: non-numeric labels sort as 0 and keep their file order
+        inserts.sort(Comparator.comparingInt(row -> labelOrder((String) row[0])));
+        for (int from = 0; from < inserts.size(); from += BATCH_SIZE) {
+            List<Object[]> batch = inserts.subList(from, Math.min(from + BATCH_SIZE, inserts.size()));
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+            inserted += batch.size();
+        }
+        return new int[] {features, inserted, updated, unchanged, skipped};
+    }
+
+    private int flush(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+        int count = rows.size();
+        rows.clear();
+        return count;
+    }
+
+    private static int labelOrder(String label) {
+        try {
+            return Integer.parseInt(label);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /** Advances the parser to the START_ARRAY of the top-level "features" field. */
+    private static boolean seekFeatures(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("features".equals(field) && value == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static ParkingSpotCategory category(JsonNode props) {
+        String type = props.has("type") ? props.get("type").asText() : "Normal";
+        try {
+            return ParkingSpotCategory.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return ParkingSpotCategory.NORMAL;
+        }
+    }
+
+    private static boolean isControlled(String label) {
+        try {
+            return Integer.parseInt(label) <= MAX_CONTROLLED;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.zakariafarih.parkingmanager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Camera-image polygons of the spots (the corners saved via define-corners), held per
+ * camera as primitive arrays with a {@link BoxGrid} over their bounds, for matching
+ * vehicle detections to spots on the server. Each camera is a lot of the ingestion
+ * pipeline: its detection frames carry its lotId and are matched only against the
+ * polygons drawn on its image, since pixel coordinates of different cameras overlap.
+ *
+ * A spot is occupied by a detection box if the box center lies inside its polygon
+ * (the rule the Python client used) or, when {@code parking.detection.iou-threshold}
+ * is above 0, if box and polygon overlap with at least that IoU. The snapshot is
+ * immutable, so frames from any number of cameras are matched concurrently on their
+ * request threads. Polygons are read from the geometry blob once; after that
+ * {@link ParkingSpotService#saveImageCorners} publishes new corners here directly and
+ * a fresh snapshot is swapped in without going back to the DB.
+ */
+@Component
+public class SpotQuadIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpotQuadIndex.class);
+    private static final double QUADS_PER_CELL = 2.0;
+
+    @Autowired
+    private SpotGeometryService spotGeometryService;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${parking.detection.iou-threshold:0}")
+    private double iouThreshold;
+
+    @Value("${parking.detection.max-boxes:1024}")
+    private int maxBoxes;
+
+    // lot -> (ordinal -> flattened [x0, y0, x1, y1, ...] image corners); guarded by this
+    private final Map<Integer, Map<Integer, int[]>> polygonsByLot = new HashMap<>();
+    // ordinal -> lot its corners belong to; guarded by this
+    private final Map<Integer, Integer> lotsByOrdinal = new HashMap<>();
+    // immutable, swapped whole
+    private volatile Map<Integer, Quads> quadsByLot;
+    // ordinal -> lot, -1 without corners; immutable, swapped with quadsByLot
+    private volatile int[] lotOfOrdinal;
+
+    /**
+     * Matches one camera frame of detections against the spots with corners on that camera.
+     *
+     * @param boxes flattened {@code [x1, y1, x2, y2, ...]} boxes in image pixels.
+     * @return frame covering every spot with corners on this camera (occupied or not),
+     *         by store ordinal; null if the camera has no spot corners.
+     */
+    public OccupancyFrame match(int lotId, long sequence, double[] boxes) {
+        if (boxes.length / 4 > maxBoxes) {
+            throw new RuntimeException("Detection frame has too many boxes: " + boxes.length / 4 + " (max " + maxBoxes + ")");
+        }
+        Quads q = quads().get(lotId);
+        if (q == null) {
+            return null;
+        }
+        boolean[] occupied = new boolean[q.size];
+        BoxGrid cells = q.cells;
+        for (int b = 0; b + 3 < boxes.length; b += 4) {
+            double x1 = Math.min(boxes[b], boxes[b + 2]);
+            double y1 = Math.min(boxes[b + 1], boxes[b + 3]);
+            double x2 = Math.max(boxes[b], boxes[b + 2]);
+            double y2 = Math.max(boxes[b + 1], boxes[b + 3]);
+            double cx = (x1 + x2) / 2;
+            double cy = (y1 + y2) / 2;
+            boolean useIou = iouThreshold > 0;
+            // centre test needs only the centre's cell; IoU needs every cell under the box
+            int gx0 = cells.cellX(useIou ? x1 : cx);
+            int gx1 = cells.cellX(useIou ? x2 : cx);
+            int gy0 = cells.cellY(useIou ? y1 : cy);
+            int gy1 = cells.cellY(useIou ? y2 : cy);
+            for (int gy = gy0; gy <= gy1; gy++) {
+                for (int gx = gx0; gx <= gx1; gx++) {
+                    for (int i = cells.start(gx, gy); i < cells.end(gx, gy); i++) {
+                        int quad = cells.item(i);
+                        if (occupied[quad] || q.maxX[quad] < x1 || q.minX[quad] > x2
+                                || q.maxY[quad] < y1 || q.minY[quad] > y2) {
+                            continue;
+                        }
+                        if (q.contains(quad, cx, cy)
+                                || (useIou && q.iou(quad, x1, y1, x2, y2) >= iouThreshold)) {
+                            occupied[quad] = true;
+                        }
+                    }
+                }
+            }
+        }
+        return new OccupancyFrame(lotId, sequence, q.ordinals, occupied, q.size);
+    }
+
+    /**
+     * The camera (lot) each spot ordinal has image corners on, -1 for spots without
+     * corners. An immutable snapshot: callers must not modify it.
+     */
+    public int[] lotsOfOrdinals() {
+        quads();
+        return lotOfOrdinal;
+    }
+
+    /**
+     * Replaces the image corners (and camera) of the given spots and swaps in a new
+     * snapshot, rebuilding only the cameras involved. Polygons with fewer than 3 corners
+     * take the spot out of matching.
+     */
+    public synchronized void publish(int[] lotIds, int[] ordinals, int[][] corners) {
+        Map<Integer, Quads> next = new HashMap<>(quads());
+        Set<Integer> changedLots = new HashSet<>();
+        for (int i = 0; i < ordinals.length; i++) {
+            put(lotIds[i], ordinals[i], corners[i], changedLots);
+        }
+        for (int lotId : changedLots) {
+            Map<Integer, int[]> polygons = polygonsByLot.get(lotId);
+            if (polygons == null) {
+                next.remove(lotId);
+            } else {
+                next.put(lotId, build(lotId, polygons));
+            }
+        }
+        lotOfOrdinal = ordinalLots();
+        quadsByLot = Map.copyOf(next);
+    }
+
+    /**
+     * Flattens {@code [[x, y], ...]} corners; throws if a corner is not an (x, y) pair.
+     */
+    static int[] flatten(List<List<Integer>> corners) {
+        int[] flat = new int[corners.size() * 2];
+        for (int k = 0; k < corners.size(); k++) {
+            List<Integer> point = corners.get(k);
+            if (point == null || point.size() != 2 || point.get(0) == null || point.get(1) == null) {
+                throw new RuntimeException("Each corner must be an [x, y] pair");
+            }
+            flat[2 * k] = point.get(0);
+            flat[2 * k + 1] = point.get(1);
+        }
+        return flat;
+    }
+
+    /**
+     * The stored JSON form of flattened corners: {@code [[x0,y0],[x1,y1],...]}.
+     */
+    static String toJson(int[] flat) {
+        StringBuilder json = new StringBuilder(flat.length * 6 + 2).append('[');
+        for (int k = 0; k < flat.length; k += 2) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append('[').append(flat[k]).append(',').append(flat[k + 1]).append(']');
+        }
+        return json.append(']').toString();
+    }
+
+    private Map<Integer, Quads> quads() {
+        Map<Integer, Quads> q = quadsByLot;
+        if (q == null) {
+            synchronized (this) {
+                q = quadsByLot;
+                if (q == null) {
+                    load(spotGeometryService.current());
+                    Map<Integer, Quads> built = new HashMap<>();
+                    polygonsByLot.forEach((lotId, polygons) -> built.put(lotId, build(lotId, polygons)));
+                    q = Map.copyOf(built);
+                    lotOfOrdinal = ordinalLots();
+                    quadsByLot = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    private int[] ordinalLots() {
+        int size = lotsByOrdinal.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        int[] lots = new int[size];
+        Arrays.fill(lots, -1);
+        lotsByOrdinal.forEach((ordinal, lotId) -> lots[ordinal] = lotId);
+        return lots;
+    }
+
+    /** Moves a spot's polygon to {@code lotId}, recording every lot whose polygons changed. */
+    private void put(int lotId, int ordinal, int[] corners, Set<Integer> changedLots) {
+        Integer previous = lotsByOrdinal.put(ordinal, lotId);
+        if (previous != null && previous != lotId) {
+            Map<Integer, int[]> old = polygonsByLot.get(previous);
+            old.remove(ordinal);
+            if (old.isEmpty()) {
+                polygonsByLot.remove(previous);
+            }
+            changedLots.add(previous);
+        }
+        polygonsByLot.computeIfAbsent(lotId, id -> new HashMap<>()).put(ordinal, corners);
+        changedLots.add(lotId);
+    }
+
+    private void load(SpotGeometryService.Blob blob) {
+        JsonNode rows;
+        try {
+            rows = objectMapper.readTree(blob.json());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        for (JsonNode row : rows) {
+            JsonNode corners = row.get("imageCoordinates");
+            JsonNode lot = row.get("imageLotId");
+            int lotId = lot == null || lot.isNull() ? OccupancyIngestionService.DEFAULT_LOT : lot.asInt();
+            int ordinal = occupancyStateStore.ordinalOfId(row.get("id").asLong());
+            if (corners == null || corners.isNull() || ordinal < 0) {
+                continue;
+            }
+            try {
+                JsonNode points = objectMapper.readTree(corners.asText());
+                int[] flat = new int[points.size() * 2];
+                for (int k = 0; k < points.size(); k++) {
+                    flat[2 * k] = (int) Math.round(points.get(k).get(0).asDouble());
+                    flat[2 * k + 1] = (int) Math.round(points.get(k).get(1).asDouble());
+                }
+                put(lotId, ordinal, flat, new HashSet<>());
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("Skipping spot {} with unreadable image corners", row.get("label").asText());
+            }
+        }
+    }
+
+    private static Quads build(int lotId, Map<Integer, int[]> polygons) {
+        Quads q = new Quads(polygons.size());
+        for (Map.Entry<Integer, int[]> polygon : polygons.entrySet()) {
+            if (polygon.getValue().length >= 6) {
+                q.add(polygon.getKey(), polygon.getValue());
+            }
+        }
+        q.index();
+        logger.info("Spot quad index built for lot {}: {} spots with image corners", lotId, q.size);
+        return q;
+    }
+
+    private static final class Quads {
+        final int[] ordinals;
+        final int[] vertexStart;
+        double[] vx = new double[64];
+        double[] vy = new double[64];
+        final double[] minX;
+        final double[] minY;
+        final double[] maxX;
+        final double[] maxY;
+        final double[] area;
+        int size;
+        BoxGrid cells;
+
+        Quads(int capacity) {
+            ordinals = new int[capacity];
+            vertexStart = new int[capacity + 1];
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+            area = new double[capacity];
+        }
+
+        void add(int ordinal, int[] points) {
+            int start = vertexStart[size];
+            int end = start + points.length / 2;
+            if (end > vx.length) {
+                vx = Arrays.copyOf(vx, Math.max(end, vx.length * 2));
+                vy = Arrays.copyOf(vy, vx.length);
+            }
+            double x0 = Double.POSITIVE_INFINITY;
+            double y0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY;
+            double y1 = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < end - start; k++) {
+                double x = points[2 * k];
+                double y = points[2 * k + 1];
+                vx[start + k] = x;
+                vy[start + k] = y;
+                x0 = Math.min(x0, x);
+                y0 = Math.min(y0, y);
+                x1 = Math.max(x1, x);
+                y1 = Math.max(y1, y);
+            }
+            ordinals[size] = ordinal;
+            minX[size] = x0;
+            minY[size] = y0;
+            maxX[size] = x1;
+            maxY[size] = y1;
+            area[size] = Math.abs(shoelace(vx, vy, start, end));
+            vertexStart[++size] = end;
+        }
+
+        void index() {
+            cells = new BoxGrid(minX, minY, maxX, maxY, size, QUADS_PER_CELL);
+        }
+
+        /** Even-odd point-in-polygon; points on the boundary count as inside. */
+        boolean contains(int quad, double px, double py) {
+            int start = vertexStart[quad];
+            int end = vertexStart[quad + 1];
+            boolean inside = false;
+            for (int i = start, j = end - 1; i < end; j = i++) {
+                double xi = vx[i], yi = vy[i], xj = vx[j], yj = vy[j];
+                double cross = (xj - xi) * (py - yi) - (yj - yi) * (px - xi);
+                if (cross == 0 && px >= Math.min(xi, xj) && px <= Math.max(xi, xj)
+                        && py >= Math.min(yi, yj) && py <= Math.max(yi, yj)) {
+                    return true;
+                }
+                if ((yi > py) != (yj > py) && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        /** IoU of the polygon and an axis-aligned box (polygon clipped to the box). */
+        double iou(int quad, double x1, double y1, double x2, double y2) {
+            int start = vertexStart[quad];
+            int n = vertexStart[quad + 1] - start;
+            double[] px = Arrays.copyOfRange(vx, start, start + n);
+            double[] py = Arrays.copyOfRange(vy, start, start + n);
+            double[][] clipped = {px, py};
+            int[] count = {n};
+            clipped = clip(clipped, count, 0, x1, true);
+            clipped = clip(clipped, count, 0, x2, false);
+            clipped = clip(clipped, count, 1, y1, true);
+            clipped = clip(clipped, count, 1, y2, false);
+            double inter = count[0] < 3 ? 0 : Math.abs(shoelace(clipped[0], clipped[1], 0, count[0]));
+            double union = area[quad] + (x2 - x1) * (y2 - y1) - inter;
+            return union <= 0 ? 0 : inter / union;
+        }
+
+        /** One Sutherland-Hodgman pass against {@code coord[axis] >= bound} (or {@code <=}). */
+        private static double[][] clip(double[][] poly, int[] count, int axis, double bound, boolean keepAbove) {
+            int n = count[0];
+            double[] outX = new double[n * 2 + 1];
+            double[] outY = new double[n * 2 + 1];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                double ai = axis == 0 ? poly[0][i] : poly[1][i];
+                double aj = axis == 0 ? poly[0][j] : poly[1][j];
+                boolean inI = keepAbove ? ai >= bound : ai <= bound;
+                boolean inJ = keepAbove ? aj >= bound : aj <= bound;
+                if (inI) {
+                    outX[m] = poly[0][i];
+                    outY[m++] = poly[1][i];
+                }
+                if (inI != inJ) {
+                    double t = (bound - ai) / (aj - ai);
+                    outX[m] = poly[0][i] + t * (poly[0][j] - poly[0][i]);
+                    outY[m++] = poly[1][i] + t * (poly[1][j] - poly[1][i]);
+                }
+            }
+            count[0] = m;
+            return new double[][] {outX, outY};
+        }
+
+        private static double shoelace(double[] xs, double[] ys, int start, int end) {
+            double sum = 0;
+            for (int i = start, j = end - 1; i < end; j = i++) {
+                sum += (xs[j] * ys[i]) - (xs[i] * ys[j]);
+            }
+            return sum / 2;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.zakariafarih.parkingmanager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.payload.SpotLocationDTO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid ({@link BoxGrid}) over the bounding boxes of the spot polygons, for viewport
+ * and nearest-spot queries. Built from the {@link SpotGeometryService} blob and rebuilt
+ * whenever that blob changes. Distances are planar, in the layer's coordinate space.
+ */
+@Component
+public class SpotSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpotSpatialIndex.class);
+    // aim for a few spots per cell
+    private static final double SPOTS_PER_CELL = 4.0;
+
+    @Autowired
+    private SpotGeometryService spotGeometryService;
+
+    @Autowired
+    private OccupancyStateStore occupancyStateStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile Grid grid;
+
+    /**
+     * Spots whose bounding box intersects the viewport, with their geometry.
+     */
+    public List<SpotLocationDTO> findWithin(double minLon, double minLat, double maxLon, double maxLat) {
+        Grid g = grid();
+        List<SpotLocationDTO> result = new ArrayList<>();
+        if (g.size == 0) {
+            return result;
+        }
+        BoxGrid cells = g.cells;
+        int cx0 = cells.cellX(minLon);
+        int cx1 = cells.cellX(maxLon);
+        int cy0 = cells.cellY(minLat);
+        int cy1 = cells.cellY(maxLat);
+        boolean[] seen = new boolean[g.size];
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int i = cells.start(cx, cy); i < cells.end(cx, cy); i++) {
+                    int spot = cells.item(i);
+                    if (seen[spot]) {
+                        continue;
+                    }
+                    seen[spot] = true;
+                    if (g.maxX[spot] >= minLon && g.minX[spot] <= maxLon
+                            && g.maxY[spot] >= minLat && g.minY[spot] <= maxLat) {
+                        result.add(toDto(g, spot, g.coordinates[spot], null));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code k} AVAILABLE spots closest to the point (distance to the spot's bounding box),
+     * nearest first. Searches rings of cells outward and stops once no unvisited cell can be
+     * closer than the current k-th result.
+     */
+    public List<SpotLocationDTO> findNearestAvailable(double lon, double lat, int k) {
+        Grid g = grid();
+        if (g.size == 0 || k <= 0) {
+            return List.of();
+        }
+        int[] best = new int[k];
+        double[] bestDist = new double[k];
+        int found = 0;
+        boolean[] seen = new boolean[g.size];
+        BoxGrid cells = g.cells;
+        int px = cells.cellX(lon);
+        int py = cells.cellY(lat);
+        int maxRing = Math.max(cells.columns, cells.rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // nothing in this ring or beyond can be closer than (ring - 1) whole cells
+            if (found == k && (ring - 1) * cells.cellSize > bestDist[k - 1]) {
+                break;
+            }
+            for (int cy = py - ring; cy <= py + ring; cy++) {
+                for (int cx = px - ring; cx <= px + ring; cx++) {
+                    boolean onRing = Math.abs(cy - py) == ring || Math.abs(cx - px) == ring;
+                    if (!onRing || cx < 0 || cy < 0 || cx >= cells.columns || cy >= cells.rows) {
+                        continue;
+                    }
+                    for (int i = cells.start(cx, cy); i < cells.end(cx, cy); i++) {
+                        int spot = cells.item(i);
+                        if (seen[spot]) {
+                            continue;
+                        }
+                        seen[spot] = true;
+                        int ordinal = occupancyStateStore.ordinalOfId(g.ids[spot]);
+                        if (ordinal < 0 || occupancyStateStore.statusAt(ordinal) != ParkingStatus.AVAILABLE) {
+                            continue;
+                        }
+                        double dx = Math.max(0, Math.max(g.minX[spot] - lon, lon - g.maxX[spot]));
+                        double dy = Math.max(0, Math.max(g.minY[spot] - lat, lat - g.maxY[spot]));
+                        double dist = Math.sqrt(dx * dx + dy * dy);
+                        if (found < k || dist < bestDist[found - 1]) {
+                            // insertion into the small sorted top-k arrays
+                            int at = found < k ? found++ : k - 1;
+                            while (at > 0 && bestDist[at - 1] > dist) {
+                                best[at] = best[at - 1];
+                                bestDist[at] = bestDist[at - 1];
+                                at--;
+                            }
+                            best[at] = spot;
+                            bestDist[at] = dist;
+                        }
+                    }
+                }
+            }
+        }
+        List<SpotLocationDTO> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(toDto(g, best[i], null, bestDist[i]));
+        }
+        return result;
+    }
+
+    private SpotLocationDTO toDto(Grid g, int spot, String coordinates, Double distance) {
+        int ordinal = occupancyStateStore.ordinalOfId(g.ids[spot]);
+        return new SpotLocationDTO(g.ids[spot], g.labels[spot],
+                ordinal < 0 ? null : occupancyStateStore.statusAt(ordinal),
+                ordinal < 0 ? null : occupancyStateStore.categoryAt(ordinal),
+                (g.minX[spot] + g.maxX[spot]) / 2, (g.minY[spot] + g.maxY[spot]) / 2,
+                coordinates, distance);
+    }
+
+    private Grid grid() {
+        SpotGeometryService.Blob blob = spotGeometryService.current();
+        Grid g = grid;
+        if (g == null || g.source != blob) {
+            synchronized (this) {
+                g = grid;
+                if (g == null || g.source != blob) {
+                    g = build(blob);
+                    grid = g;
+                }
+            }
+        }
+        return g;
+    }
+
+    private Grid build(SpotGeometryService.Blob blob) {
+        JsonNode rows;
+        try {
+            rows = objectMapper.readTree(blob.json());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        int n = 0;
+        Grid g = new Grid(blob, rows.size());
+        for (JsonNode row : rows) {
+            JsonNode coordinates = row.get("coordinates");
+            if (coordinates == null || coordinates.isNull()) {
+                continue;
+            }
+            double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            try {
+                JsonNode geometry = objectMapper.readTree(coordinates.asText());
+                extendBox(geometry.get("coordinates"), box);
+            } catch (IOException ex) {
+                logger.warn("Skipping spot {} with unreadable geometry", row.get("label").asText());
+                continue;
+            }
+            if (box[0] > box[2]) {
+                continue;
+            }
+            g.ids[n] = row.get("id").asLong();
+            g.labels[n] = row.get("label").asText();
+            g.coordinates[n] = coordinates.asText();
+            g.minX[n] = box[0];
+            g.minY[n] = box[1];
+            g.maxX[n] = box[2];
+            g.maxY[n] = box[3];
+            n++;
+        }
+        g.index(n);
+        logger.info("Spatial index built: {} spots in a {}x{} grid", n, g.cells.columns, g.cells.rows);
+        return g;
+    }
+
+    /** Grows {minX, minY, maxX, maxY} over every [x, y] position of a (Multi)Polygon/Point array. */
+    private static void extendBox(JsonNode node, double[] box) {
+        if (node == null || !node.isArray() || node.isEmpty()) {
+            return;
+        }
+        if (node.get(0).isNumber()) {
+            double x = node.get(0).asDouble();
+            double y = node.get(1).asDouble();
+            box[0] = Math.min(box[0], x);
+            box[1] = Math.min(box[1], y);
+            box[2] = Math.max(box[2], x);
+            box[3] = Math.max(box[3], y);
+            return;
+        }
+        for (JsonNode child : node) {
+            extendBox(child, box);
+        }
+    }
+
+    private static final class Grid {
+        final SpotGeometryService.Blob source;
+        final long[] ids;
+        final String[] labels;
+        final String[] coordinates;
+        final double[] minX;
+        final double[] minY;
+        final double[] maxX;
+        final double[] maxY;
+        int size;
+        BoxGrid cells;
+
+        Grid(SpotGeometryService.Blob source, int capacity) {
+            this.source = source;
+            ids = new long[capacity];
+            labels = new String[capacity];
+            coordinates = new String[capacity];
+            minX = new double[capacity];
+            minY = new double[capacity];
+            maxX = new double[capacity];
+            maxY = new double[capacity];
+        }
+
+        void index(int n) {
+            size = n;
+            cells = new BoxGrid(minX, minY, maxX, maxY, n, SPOTS_PER_CELL);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.zakariafarih.parkingmanager.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: {@code LEVELS} wheels of 64 slots, each level's slot spanning
+ * 64 times the one below. Timers are nodes of intrusive doubly-linked lists, so insert and
+ * cancel are O(1); a timer moves down a level each time its slot comes around
+ * (at most LEVELS - 1 moves). With 1 s ticks four levels cover about 194 days; later
+ * deadlines park in the top level and are re-filed on each rotation.
+ *
+ * Not thread-safe: callers synchronize.
+ */
+final class TimingWheel<T> {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+
+    static final class Timer<T> {
+        final T payload;
+        final long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private int level = -1;
+        private int slot;
+
+        Timer(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final Timer<T>[][] heads = new Timer[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long startTick) {
+        this.currentTick = startTick;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Files a timer; a deadline at or before the current tick fires on the next tick.
+     */
+    Timer<T> schedule(T payload, long deadlineTick) {
+        Timer<T> timer = new Timer<>(payload, deadlineTick);
+        file(timer, currentTick + 1);
+        size++;
+        return timer;
+    }
+
+    void cancel(Timer<T> timer) {
+        if (timer.level < 0) {
+            return; // already fired or cancelled
+        }
+        unlink(timer);
+        size--;
+    }
+
+    /**
+     * Moves time forward to {@code toTick}, passing every expired timer to {@code fire}.
+     */
+    void advanceTo(long toTick, Consumer<Timer<T>> fire) {
+        while (currentTick < toTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & MASK);
+                }
+            }
+            Timer<T> timer = detach(0, (int) currentTick & MASK);
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.prev = timer.next = null;
+                if (timer.deadlineTick <= currentTick) {
+                    size--;
+                    fire.accept(timer);
+                } else {
+                    file(timer, currentTick + 1);
+                }
+                timer = next;
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> timer = detach(level, slot);
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.prev = timer.next = null;
+            file(timer, currentTick); // this tick's level-0 slot is processed right after cascading
+            timer = next;
+        }
+    }
+
+    private void file(Timer<T> timer, long earliestTick) {
+        long deadline = Math.max(timer.deadlineTick, earliestTick);
+        long delta = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        if (level == LEVELS - 1 && delta >= (1L << (SLOT_BITS * LEVELS))) {
+            // beyond the horizon: park one top-level rotation ahead and re-file from there
+            deadline = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        }
+        int slot = (int) (deadline >>> (SLOT_BITS * level)) & MASK;
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = heads[level][slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        heads[level][slot] = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            heads[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = timer.next = null;
+        timer.level = -1;
+    }
+
+    private Timer<T> detach(int level, int slot) {
+        Timer<T> head = heads[level][slot];
+        heads[level][slot] = null;
+        for (Timer<T> t = head; t != null; t = t.next) {
+            t.level = -1;
+        }
+        return head;
+    }
+}
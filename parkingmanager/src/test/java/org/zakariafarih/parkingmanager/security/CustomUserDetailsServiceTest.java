@@ -0,0 +1,66 @@
+package org.zakariafarih.parkingmanager.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.zakariafarih.parkingmanager.model.Role;
+import org.zakariafarih.parkingmanager.model.User;
+import org.zakariafarih.parkingmanager.repository.UserRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private CustomUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            return Optional.of(User.builder().id(id).email("user" + id + "@example.com").role(Role.ROLE_USER).build());
+        });
+        service = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "userCacheTtlSeconds", 60L);
+        ReflectionTestUtils.setField(service, "maxCachedUsers", 10);
+    }
+
+    @Test
+    void repeatedTokensOfAUserHitTheDatabaseOnce() {
+        service.loadUserFromClaims(claims(1));
+        CustomUserDetails principal = service.loadUserFromClaims(claims(1));
+
+        assertEquals("user1@example.com", principal.getUsername());
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void fullCacheWithNothingExpiredStillCachesNewUsers() {
+        for (long id = 1; id <= 10; id++) {
+            service.loadUserFromClaims(claims(id));
+        }
+
+        service.loadUserFromClaims(claims(11));
+        service.loadUserFromClaims(claims(11));
+
+        verify(userRepository, times(1)).findById(11L);
+    }
+
+    private static Claims claims(long id) {
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn(String.valueOf(id));
+        when(claims.get("email", String.class)).thenReturn("user" + id + "@example.com");
+        when(claims.get("role", String.class)).thenReturn(Role.ROLE_USER.name());
+        return claims;
+    }
+}
@@ -0,0 +1,58 @@
+package org.zakariafarih.parkingmanager.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitBucketStoreTest {
+
+    private final RateLimitPolicy policy = new RateLimitPolicy("test", 2);
+    private RateLimitBucketStore store;
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    @Test
+    void eachClientHasItsOwnBudget() {
+        store = new RateLimitBucketStore(100, 10, 3600);
+
+        assertTrue(store.tryConsume(policy, "a").isConsumed());
+        assertTrue(store.tryConsume(policy, "a").isConsumed());
+        assertFalse(store.tryConsume(policy, "a").isConsumed());
+        assertTrue(store.tryConsume(policy, "b").isConsumed());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void overflowDropsTheLeastRecentlyUsedBuckets() {
+        store = new RateLimitBucketStore(3, 10, 3600);
+        store.tryConsume(policy, "a");
+        store.tryConsume(policy, "a");
+        store.tryConsume(policy, "b");
+        store.tryConsume(policy, "c");
+        store.tryConsume(policy, "a"); // a is now the most recently used
+
+        store.tryConsume(policy, "d");
+
+        assertEquals(3, store.size());
+        // a kept its spent bucket; b was dropped
+        assertFalse(store.tryConsume(policy, "a").isConsumed());
+        assertTrue(store.tryConsume(policy, "b").isConsumed());
+    }
+
+    @Test
+    void sweepDropsIdleBuckets() {
+        store = new RateLimitBucketStore(100, 0, 3600);
+        store.tryConsume(policy, "a");
+        store.tryConsume(policy, "b");
+
+        store.sweep();
+
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,107 @@
+package org.zakariafarih.parkingmanager.security;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisRateLimiterTest {
+
+    private static RedisServer redis;
+    private static int port;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        port = freePort();
+        redis = new RedisServer(port);
+        redis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.stop();
+    }
+
+    @Test
+    void instancesShareOneBudget() {
+        LettuceConnectionFactory factory = connectionFactory(port);
+        RedisRateLimiter nodeA = new RedisRateLimiter(true, provider(factory), 1000, 30);
+        RedisRateLimiter nodeB = new RedisRateLimiter(true, provider(factory), 1000, 30);
+        RateLimitPolicy policy = new RateLimitPolicy("test", 3);
+        try {
+            assertTrue(nodeA.tryConsume(policy, "10.0.0.1").isConsumed());
+            assertTrue(nodeB.tryConsume(policy, "10.0.0.1").isConsumed());
+            assertTrue(nodeA.tryConsume(policy, "10.0.0.1").isConsumed());
+            assertFalse(nodeB.tryConsume(policy, "10.0.0.1").isConsumed());
+            assertFalse(nodeA.tryConsume(policy, "10.0.0.1").isConsumed());
+            // other clients have their own bucket
+            assertTrue(nodeB.tryConsume(policy, "10.0.0.2").isConsumed());
+        } finally {
+            nodeA.close();
+            nodeB.close();
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void unreachableRedisFallsBackToLocal() throws IOException {
+        LettuceConnectionFactory factory = connectionFactory(freePort());
+        RedisRateLimiter limiter = new RedisRateLimiter(true, provider(factory), 200, 30);
+        RateLimitPolicy policy = new RateLimitPolicy("test", 3);
+        try {
+            assertNull(limiter.tryConsume(policy, "10.0.0.1"));
+            // backs off instead of reconnecting on every request
+            long started = System.nanoTime();
+            assertNull(limiter.tryConsume(policy, "10.0.0.1"));
+            assertTrue(System.nanoTime() - started < 50_000_000L);
+        } finally {
+            limiter.close();
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void disabledByDefault() {
+        RedisRateLimiter limiter = new RedisRateLimiter(false, provider(null), 200, 30);
+        assertNull(limiter.tryConsume(new RateLimitPolicy("test", 3), "10.0.0.1"));
+    }
+
+    @Test
+    void missingConnectionFactoryFallsBackToLocal() {
+        RedisRateLimiter limiter = new RedisRateLimiter(true, provider(null), 200, 30);
+        assertNull(limiter.tryConsume(new RateLimitPolicy("test", 3), "10.0.0.1"));
+    }
+
+    private static LettuceConnectionFactory connectionFactory(int port) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        factory.afterPropertiesSet();
+        factory.start();
+        return factory;
+    }
+
+    private static ObjectProvider<RedisConnectionFactory> provider(RedisConnectionFactory factory) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (factory != null) {
+            beans.addBean("redisConnectionFactory", factory);
+        }
+        return beans.getBeanProvider(RedisConnectionFactory.class);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
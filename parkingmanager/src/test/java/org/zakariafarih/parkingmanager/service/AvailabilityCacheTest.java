@@ -0,0 +1,78 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.junit.jupiter.api.Test;
+import org.zakariafarih.parkingmanager.payload.AvailabilityCacheStatsDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AvailabilityCacheTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    void invalidatingASpotRecomputesItsWindowsAndDropsTheStaleEntry() {
+        AvailabilityCache cache = new AvailabilityCache(100);
+        List<AvailabilityService.TimeInterval> first = cache.get(1, 0, 60, this::compute);
+        cache.get(2, 0, 60, this::compute);
+        assertSame(first, cache.get(1, 0, 60, this::compute));
+        assertEquals(2, computations.get());
+
+        cache.invalidate(1);
+        cache.get(1, 0, 60, this::compute);
+        cache.get(2, 0, 60, this::compute);
+
+        assertEquals(3, computations.get());
+        AvailabilityCacheStatsDTO stats = cache.getStats();
+        assertEquals(2, stats.getSize());
+        assertEquals(2, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getInvalidations());
+    }
+
+    @Test
+    void sweepDropsStaleEntriesBeforeLiveOnes() {
+        AvailabilityCache cache = new AvailabilityCache(100);
+        cache.get(1, 0, 60, this::compute);
+        cache.get(1, 60, 120, this::compute);
+        cache.get(2, 0, 60, this::compute);
+
+        cache.invalidate(1);
+        cache.sweep();
+
+        assertEquals(1, cache.getStats().getSize());
+        assertEquals(0, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void overflowDropsTheLeastRecentlyUsedEntries() {
+        AvailabilityCache cache = new AvailabilityCache(10);
+        for (int spot = 0; spot < 10; spot++) {
+            cache.get(spot, 0, 60, this::compute);
+        }
+        cache.get(0, 0, 60, this::compute); // spot 0 is now the most recently used
+
+        cache.get(10, 0, 60, this::compute);
+
+        // swept down to 9: spots 1 and 2 were the least recently used
+        assertEquals(9, cache.getStats().getSize());
+        assertEquals(2, cache.getStats().getEvictions());
+        int before = computations.get();
+        cache.get(0, 0, 60, this::compute);
+        cache.get(3, 0, 60, this::compute);
+        assertEquals(before, computations.get());
+        cache.get(1, 0, 60, this::compute);
+        assertEquals(before + 1, computations.get());
+    }
+
+    private List<AvailabilityService.TimeInterval> compute() {
+        computations.incrementAndGet();
+        return List.of(new AvailabilityService.TimeInterval(T, T.plusHours(1)));
+    }
+}
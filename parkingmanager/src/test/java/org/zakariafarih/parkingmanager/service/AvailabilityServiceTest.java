@@ -0,0 +1,118 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.model.Role;
+import org.zakariafarih.parkingmanager.payload.AvailabilityMatrixDTO;
+import org.zakariafarih.parkingmanager.payload.FreeSpotDTO;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
+import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+import org.zakariafarih.parkingmanager.repository.ReservationHistoryRepository;
+import org.zakariafarih.parkingmanager.repository.ReservationRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AvailabilityServiceTest {
+
+    private ParkingSpotRepository spotRepository;
+    private ReservationRepository reservationRepository;
+    private ReservationHistoryRepository historyRepository;
+    private AvailabilityService service;
+
+    @BeforeEach
+    void setUp() {
+        spotRepository = mock(ParkingSpotRepository.class);
+        when(spotRepository.findSummaryViews()).thenReturn(List.of(
+                spot(1L, "1", ParkingStatus.AVAILABLE),
+                spot(2L, "2", ParkingStatus.AVAILABLE)));
+        reservationRepository = mock(ReservationRepository.class);
+        historyRepository = mock(ReservationHistoryRepository.class);
+
+        service = new AvailabilityService();
+        ReflectionTestUtils.setField(service, "parkingSpotRepository", spotRepository);
+        ReflectionTestUtils.setField(service, "reservationRepository", reservationRepository);
+        ReflectionTestUtils.setField(service, "reservationHistoryRepository", historyRepository);
+        ReflectionTestUtils.setField(service, "archiveRetainHours", 24L);
+    }
+
+    @Test
+    void matrixOfAnOldWindowIncludesArchivedReservations() {
+        LocalDateTime start = LocalDateTime.now().minusDays(3).truncatedTo(ChronoUnit.HOURS);
+        when(reservationRepository.findIntervalsBetween(any(), any())).thenReturn(rows(
+                new Object[] {2L, start.plusHours(3), start.plusHours(4)}));
+        when(historyRepository.findIntervalsBetween(any(), any())).thenReturn(rows(
+                new Object[] {1L, start, start.plusHours(1)},
+                new Object[] {2L, start.plusHours(1), start.plusHours(2)}));
+
+        AvailabilityMatrixDTO matrix = service.getAvailabilityMatrix(start, start.plusHours(4), 60, null);
+
+        assertEquals(bits(0), matrix.getSpots().get(0).getReserved());
+        assertEquals(bits(1, 3), matrix.getSpots().get(1).getReserved());
+    }
+
+    @Test
+    void matrixOfARecentWindowSkipsTheArchive() {
+        LocalDateTime start = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.HOURS);
+        when(reservationRepository.findIntervalsBetween(any(), any())).thenReturn(rows(
+                new Object[] {1L, start, start.plusHours(1)}));
+
+        AvailabilityMatrixDTO matrix = service.getAvailabilityMatrix(start, start.plusHours(2), 60, null);
+
+        assertEquals(bits(0), matrix.getSpots().get(0).getReserved());
+        verifyNoInteractions(historyRepository);
+    }
+
+    @Test
+    void freeSpotsSkipSpotsOutOfCirculation() {
+        OccupancyStateStore store = mock(OccupancyStateStore.class);
+        ParkingStatus[] statuses = {ParkingStatus.UNDER_MAINTENANCE, ParkingStatus.AVAILABLE,
+                ParkingStatus.PERSONAL_USE, ParkingStatus.OCCUPIED};
+        when(store.size()).thenReturn(statuses.length);
+        for (int ordinal = 0; ordinal < statuses.length; ordinal++) {
+            when(store.statusAt(ordinal)).thenReturn(statuses[ordinal]);
+            when(store.categoryAt(ordinal)).thenReturn(ParkingSpotCategory.NORMAL);
+            when(store.idAt(ordinal)).thenReturn(ordinal + 1L);
+            when(store.labelAt(ordinal)).thenReturn(String.valueOf(ordinal + 1));
+        }
+        ReservationIntervalIndex index = mock(ReservationIntervalIndex.class);
+        when(index.gapSlackMillis(anyLong(), any(), any(), anyLong())).thenReturn(0L);
+        ReflectionTestUtils.setField(service, "occupancyStateStore", store);
+        ReflectionTestUtils.setField(service, "reservationIntervalIndex", index);
+        LocalDateTime start = LocalDateTime.now().plusHours(1);
+
+        List<FreeSpotDTO> free = service.findFreeSpots(start, start.plusHours(1), null, Role.ROLE_USER, 10);
+
+        assertEquals(List.of(2L, 4L), free.stream().map(FreeSpotDTO::getId).toList());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private static String bits(int... slots) {
+        BitSet set = new BitSet();
+        for (int slot : slots) {
+            set.set(slot);
+        }
+        return Base64.getEncoder().encodeToString(set.toByteArray());
+    }
+
+    private static ParkingSpotSummaryDTO spot(long id, String label, ParkingStatus status) {
+        return new ParkingSpotSummaryDTO(id, label, status, ParkingSpotCategory.NORMAL, false, true);
+    }
+}
@@ -0,0 +1,64 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyDebouncerTest {
+
+    @Test
+    void switchesOnlyAfterMinFramesConsecutiveReadings() {
+        OccupancyDebouncer debouncer = new OccupancyDebouncer(3, 0);
+        boolean occupied = false;
+        occupied = debouncer.observe(0, occupied, true, 0);
+        assertFalse(occupied);
+        occupied = debouncer.observe(0, occupied, true, 10);
+        assertFalse(occupied);
+        occupied = debouncer.observe(0, occupied, true, 20);
+        assertTrue(occupied);
+        // the streak restarts after a committed change: switching back takes three more readings
+        occupied = debouncer.observe(0, occupied, false, 30);
+        assertTrue(occupied);
+        occupied = debouncer.observe(0, occupied, false, 40);
+        assertTrue(occupied);
+        occupied = debouncer.observe(0, occupied, false, 50);
+        assertFalse(occupied);
+        assertEquals(0, debouncer.getSuppressed());
+    }
+
+    @Test
+    void flickerIsSuppressedAndCounted() {
+        OccupancyDebouncer debouncer = new OccupancyDebouncer(3, 0);
+        assertFalse(debouncer.observe(5, false, true, 0));
+        assertFalse(debouncer.observe(5, false, true, 10));
+        assertFalse(debouncer.observe(5, false, false, 20));
+        // the streak was reset, so two more readings are not enough
+        assertFalse(debouncer.observe(5, false, true, 30));
+        assertFalse(debouncer.observe(5, false, true, 40));
+        assertEquals(1, debouncer.getSuppressed());
+    }
+
+    @Test
+    void dwellTimeIsRequiredOnTopOfFrames() {
+        OccupancyDebouncer debouncer = new OccupancyDebouncer(2, 1000);
+        assertFalse(debouncer.observe(1, false, true, 0));
+        assertFalse(debouncer.observe(1, false, true, 500));
+        assertFalse(debouncer.observe(1, false, true, 999));
+        assertTrue(debouncer.observe(1, false, true, 1000));
+    }
+
+    @Test
+    void spotsAreIndependentAndMinFramesOneDisablesDebouncing() {
+        OccupancyDebouncer debouncer = new OccupancyDebouncer(2, 0);
+        assertFalse(debouncer.observe(0, false, true, 0));
+        assertFalse(debouncer.observe(1000, false, true, 0));
+        assertTrue(debouncer.observe(0, false, true, 1));
+        assertTrue(debouncer.observe(1000, false, true, 1));
+
+        OccupancyDebouncer passThrough = new OccupancyDebouncer(1, 0);
+        assertTrue(passThrough.observe(3, false, true, 0));
+        assertFalse(passThrough.observe(3, true, false, 0));
+    }
+}
@@ -0,0 +1,101 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyFrameDecoderTest {
+
+    private final OccupancyFrameDecoder decoder = new OccupancyFrameDecoder(128);
+
+    @Test
+    void decodesHeaderAndBits() throws IOException {
+        // spots 0, 3 and 9 occupied out of 10
+        OccupancyFrame frame = decoder.decode(frame(7, 42L, 10, new byte[] {0b0000_1001, 0b0000_0010}));
+
+        assertEquals(7, frame.getLotId());
+        assertEquals(42L, frame.getSequence());
+        assertEquals(10, frame.getLength());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i == 0 || i == 3 || i == 9, frame.isOccupied(i), "spot " + i);
+            assertEquals(i, frame.ordinalAt(i));
+        }
+    }
+
+    @Test
+    void bitsSurviveWordBoundaries() throws IOException {
+        byte[] bits = new byte[9];
+        bits[7] = (byte) 0x80; // spot 63
+        bits[8] = 0b0100_0001; // spots 64 and 70
+        OccupancyFrame frame = decoder.decode(frame(1, 1L, 71, bits));
+        for (int i = 0; i < 71; i++) {
+            assertEquals(i == 63 || i == 64 || i == 70, frame.isOccupied(i), "spot " + i);
+        }
+    }
+
+    @Test
+    void rejectsShortTruncatedAndOversizedFrames() {
+        assertThrows(RuntimeException.class, () -> decoder.decode(new ByteArrayInputStream(new byte[10])));
+        assertThrows(RuntimeException.class, () -> decoder.decode(frame(1, 1L, 16, new byte[1])));
+        assertThrows(RuntimeException.class, () -> decoder.decode(frame(1, 1L, 8, new byte[] {1, 0})));
+        assertThrows(RuntimeException.class, () -> decoder.decode(frame(1, 1L, 129, new byte[17])));
+        assertThrows(RuntimeException.class, () -> decoder.decode(frame(1, 1L, -1, new byte[0])));
+    }
+
+    @Test
+    void readsNoMoreThanOneFrameFromAHugeBody() {
+        CountingStream body = new CountingStream(frame(1, 1L, 64, new byte[8 + 10_000_000]));
+        assertThrows(RuntimeException.class, () -> decoder.decode(body));
+        // header + 8 bit bytes + the one byte that proved the body too long
+        assertEquals(OccupancyFrameDecoder.HEADER_BYTES + 8 + 1, body.count);
+    }
+
+    @Test
+    void bufferIsReusedAcrossFrames() throws IOException {
+        OccupancyFrame first = decoder.decode(frame(1, 1L, 8, new byte[] {(byte) 0xFF}));
+        OccupancyFrame second = decoder.decode(frame(1, 2L, 8, new byte[] {0}));
+        assertTrue(first.isOccupied(7));
+        assertFalse(second.isOccupied(7));
+    }
+
+    private static InputStream frame(int lotId, long sequence, int spotCount, byte[] bits) {
+        ByteBuffer buf = ByteBuffer.allocate(OccupancyFrameDecoder.HEADER_BYTES + bits.length);
+        buf.putInt(lotId).putLong(sequence).putInt(spotCount).put(bits);
+        return new ByteArrayInputStream(buf.array());
+    }
+
+    private static final class CountingStream extends FilterInputStream {
+        long count;
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
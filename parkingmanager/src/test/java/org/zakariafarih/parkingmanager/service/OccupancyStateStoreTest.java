@@ -0,0 +1,147 @@
+package org.zakariafarih.parkingmanager.service;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zakariafarih.parkingmanager.model.ParkingSpot;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.payload.ParkingSpotSummaryDTO;
+import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OccupancyStateStoreTest {
+
+    private ParkingSpotRepository repository;
+    private OccupancyStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ParkingSpotRepository.class);
+        when(repository.findSummaryViews()).thenReturn(List.of(
+                spot(10L, "1", ParkingStatus.AVAILABLE, false),
+                spot(11L, "2", ParkingStatus.OCCUPIED, true),
+                spot(12L, "3", ParkingStatus.AVAILABLE, false)));
+        store = new OccupancyStateStore();
+        ReflectionTestUtils.setField(store, "parkingSpotRepository", repository);
+        assertEquals(3, store.size()); // loads the store
+    }
+
+    @Test
+    void onlyRealChangesAreDirty() {
+        assertFalse(store.applyOccupancy(store.ordinalOf("1"), false));
+        assertFalse(store.applyOccupancy(store.ordinalOf("2"), true));
+        assertTrue(store.applyOccupancy(store.ordinalOf("3"), true));
+        assertTrue(store.applyOccupancy(store.ordinalOf("2"), false));
+
+        assertArrayEquals(new int[] {1, 2}, store.drainDirty());
+        assertArrayEquals(new int[0], store.drainDirty());
+        assertEquals(ParkingStatus.OCCUPIED, store.statusAt(2));
+        assertEquals(ParkingStatus.AVAILABLE, store.statusAt(1));
+    }
+
+    @Test
+    void freeReadingKeepsReservedSpotReserved() {
+        assertTrue(store.applyStatus(0, ParkingStatus.RESERVED));
+        store.drainDirty();
+
+        assertFalse(store.applyOccupancy(0, false));
+        assertEquals(ParkingStatus.RESERVED, store.statusAt(0));
+        assertArrayEquals(new int[0], store.drainDirty());
+
+        // a car on the reserved spot occupies it; once it leaves the spot is free again
+        assertTrue(store.applyOccupancy(0, true));
+        assertEquals(ParkingStatus.OCCUPIED, store.statusAt(0));
+        assertTrue(store.applyOccupancy(0, false));
+        assertEquals(ParkingStatus.AVAILABLE, store.statusAt(0));
+    }
+
+    @Test
+    void markDirtyRequeuesAndJpaUpdateClears() {
+        store.applyOccupancy(0, true);
+        int[] drained = store.drainDirty();
+        store.markDirty(drained);
+        assertArrayEquals(new int[] {0}, store.drainDirty());
+
+        store.applyOccupancy(2, true);
+        ParkingSpot saved = new ParkingSpot();
+        saved.setId(12L);
+        saved.setLabel("3");
+        saved.setStatus(ParkingStatus.RESERVED);
+        saved.setCategory(ParkingSpotCategory.NORMAL);
+        store.update(saved);
+        assertArrayEquals(new int[0], store.drainDirty());
+        assertEquals(ParkingStatus.RESERVED, store.statusAt(2));
+    }
+
+    @Test
+    void flushBatchesChangedRowsEvictsThemAndRetriesOnFailure() {
+        ParkingSpotService service = new ParkingSpotService();
+        ParkingUpdatePublisher publisher = mock(ParkingUpdatePublisher.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(call -> {
+            call.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        Cache cache = mock(Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        ReflectionTestUtils.setField(service, "occupancyStateStore", store);
+        ReflectionTestUtils.setField(service, "parkingUpdatePublisher", publisher);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "entityManagerFactory", entityManagerFactory);
+
+        assertEquals(0, service.commitOccupancyChanges());
+        verifyNoInteractions(publisher, jdbcTemplate);
+
+        store.applyOccupancy(0, true);
+        store.applyOccupancy(2, true);
+        store.applyOccupancy(1, false);
+        assertEquals(3, service.commitOccupancyChanges());
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE parking_spots SET status = ?, occupied = ? WHERE id = ?"),
+                argThat((List<Object[]> rows) -> rows.size() == 3
+                        && Arrays.equals(rows.get(0), new Object[] {"OCCUPIED", true, 10L})
+                        && Arrays.equals(rows.get(1), new Object[] {"AVAILABLE", false, 11L})));
+        verify(cache).evict(ParkingSpot.class, 10L);
+        verify(cache).evict(ParkingSpot.class, 11L);
+        verify(cache).evict(ParkingSpot.class, 12L);
+        verify(cache, never()).evict(ParkingSpot.class);
+        verify(publisher).publishDelta(new int[] {0, 1, 2});
+
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        store.applyOccupancy(0, false);
+        assertThrows(RuntimeException.class, service::commitOccupancyChanges);
+        assertArrayEquals(new int[] {0}, store.drainDirty());
+    }
+
+    private static ParkingSpotSummaryDTO spot(long id, String label, ParkingStatus status, boolean occupied) {
+        return new ParkingSpotSummaryDTO(id, label, status, ParkingSpotCategory.NORMAL, occupied, true);
+    }
+}
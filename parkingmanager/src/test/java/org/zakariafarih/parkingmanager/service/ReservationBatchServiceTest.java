@@ -0,0 +1,189 @@
+package org.zakariafarih.parkingmanager.service;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zakariafarih.parkingmanager.model.ParkingSpot;
+import org.zakariafarih.parkingmanager.model.ParkingSpotCategory;
+import org.zakariafarih.parkingmanager.model.ParkingStatus;
+import org.zakariafarih.parkingmanager.model.Role;
+import org.zakariafarih.parkingmanager.model.User;
+import org.zakariafarih.parkingmanager.payload.BatchReservationResultDTO;
+import org.zakariafarih.parkingmanager.payload.ReservationRequest;
+import org.zakariafarih.parkingmanager.repository.ParkingSpotRepository;
+import org.zakariafarih.parkingmanager.repository.ReservationRepository;
+import org.zakariafarih.parkingmanager.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationBatchServiceTest {
+
+    private static final LocalDateTime T = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+
+    private final List<Object[]> stored = new ArrayList<>();
+    private ReservationBatchService service;
+    private ReservationIntervalIndex index;
+    private JdbcTemplate jdbcTemplate;
+    private Cache cache;
+    private long nextId = 1000;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(
+                User.builder().id(7L).email("a@b.c").role(Role.ROLE_USER).build()));
+
+        ParkingSpotRepository spotRepository = mock(ParkingSpotRepository.class);
+        when(spotRepository.findAllById(any())).thenReturn(List.of(spot(1), spot(2)));
+
+        ReservationRepository reservationRepository = mock(ReservationRepository.class);
+        when(reservationRepository.findIntervalsEndingAfter(any())).thenReturn(List.of());
+        when(reservationRepository.findIntervalsOfSpotsBetween(anyCollection(), any(), any())).thenReturn(stored);
+
+        index = new ReservationIntervalIndex();
+        ReflectionTestUtils.setField(index, "reservationRepository", reservationRepository);
+        ReflectionTestUtils.setField(index, "availabilityCache", new AvailabilityCache(100));
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class))).thenAnswer(call -> {
+            BatchPreparedStatementSetter setter = call.getArgument(1);
+            KeyHolder keys = call.getArgument(2);
+            int[] counts = new int[setter.getBatchSize()];
+            for (int j = 0; j < counts.length; j++) {
+                keys.getKeyList().add(Map.of("GENERATED_KEY", nextId++));
+                counts[j] = 1;
+            }
+            return counts;
+        });
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(call ->
+                call.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        OccupancyStateStore store = mock(OccupancyStateStore.class);
+        when(store.updateStatus(anyLong(), any())).thenReturn(0);
+
+        service = new ReservationBatchService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "parkingSpotRepository", spotRepository);
+        ReflectionTestUtils.setField(service, "reservationRepository", reservationRepository);
+        ReflectionTestUtils.setField(service, "reservationIntervalIndex", index);
+        ReflectionTestUtils.setField(service, "occupancyStateStore", store);
+        ReflectionTestUtils.setField(service, "reservationLifecycleScheduler", mock(ReservationLifecycleScheduler.class));
+        ReflectionTestUtils.setField(service, "parkingUpdatePublisher", mock(ParkingUpdatePublisher.class));
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        cache = mock(Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        ReflectionTestUtils.setField(service, "entityManagerFactory", entityManagerFactory);
+    }
+
+    @Test
+    void laterOverlappingRequestInTheBatchIsRejected() {
+        BatchReservationResultDTO result = service.createReservations(7L, List.of(
+                request(1, T.plusHours(1), T.plusHours(3)),
+                request(1, T, T.plusHours(2)),
+                request(2, T, T.plusHours(2))), false);
+
+        assertEquals(2, result.getCreated());
+        assertEquals("Overlaps another reservation in the same batch", result.getResults().get(0).getError());
+        assertNotNull(result.getResults().get(1).getReservationId());
+        assertNotNull(result.getResults().get(2).getReservationId());
+    }
+
+    @Test
+    void requestOverlappingAnExistingReservationIsRejected() {
+        index.add(1, 500, T.plusHours(2), T.plusHours(4));
+
+        BatchReservationResultDTO result = service.createReservations(7L, List.of(
+                request(1, T, T.plusHours(3)),
+                request(1, T.plusHours(3), T.plusHours(5)),
+                request(1, T.plusHours(4), T.plusHours(5))), false);
+
+        assertEquals("Parking spot is already reserved in that time range", result.getResults().get(0).getError());
+        assertEquals("Parking spot is already reserved in that time range", result.getResults().get(1).getError());
+        assertNull(result.getResults().get(2).getError());
+    }
+
+    @Test
+    void adjacentIntervalsAreAccepted() {
+        index.add(1, 500, T, T.plusHours(1));
+
+        BatchReservationResultDTO result = service.createReservations(7L, List.of(
+                request(1, T.plusHours(2), T.plusHours(3)),
+                request(1, T.plusHours(1), T.plusHours(2)),
+                request(1, T.plusHours(3), T.plusHours(4))), true);
+
+        assertEquals(3, result.getCreated());
+        assertEquals(0, result.getRejected());
+    }
+
+    @Test
+    void reservationOnlyInTheDatabaseIsCaughtByTheRecheck() {
+        // booked through another instance: in the DB, not in this instance's index
+        stored.add(new Object[] {1L, T.plusHours(1), T.plusHours(2)});
+
+        BatchReservationResultDTO best = service.createReservations(7L, List.of(
+                request(1, T, T.plusHours(2)),
+                request(2, T, T.plusHours(2))), false);
+        assertEquals("Parking spot is already reserved in that time range", best.getResults().get(0).getError());
+        assertNotNull(best.getResults().get(1).getReservationId());
+        assertEquals(1, index.intervalsTouching(2, T, T.plusHours(2)).length / 2);
+        assertEquals(0, index.intervalsTouching(1, T, T.plusHours(2)).length);
+
+        BatchReservationResultDTO all = service.createReservations(7L, List.of(
+                request(1, T.plusHours(1), T.plusHours(2)),
+                request(2, T.plusHours(5), T.plusHours(6))), true);
+        assertEquals(0, all.getCreated());
+        assertEquals("Not created: another reservation in the batch was rejected", all.getResults().get(1).getError());
+    }
+
+    @Test
+    void startingSoonUpdatesOnlyTheStatus() {
+        LocalDateTime start = LocalDateTime.now().plusMinutes(2);
+
+        service.createReservations(7L, List.of(request(1, start, start.plusHours(1))), false);
+
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE parking_spots SET status = 'RESERVED' WHERE id = ?"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(1L)));
+        verify(cache).evict(ParkingSpot.class, 1L);
+    }
+
+    private static ParkingSpot spot(long id) {
+        return ParkingSpot.builder().id(id).label("S" + id).status(ParkingStatus.AVAILABLE)
+                .category(ParkingSpotCategory.NORMAL).build();
+    }
+
+    private static ReservationRequest request(long spotId, LocalDateTime start, LocalDateTime end) {
+        ReservationRequest r = new ReservationRequest();
+        r.setParkingSpotId(spotId);
+        r.setStartTime(start);
+        r.setEndTime(end);
+        return r;
+    }
+}
@@ -0,0 +1,114 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.zakariafarih.parkingmanager.repository.ReservationRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReservationIntervalIndexTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    private final TimeZone originalZone = TimeZone.getDefault();
+    private ReservationIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReservationRepository repository = mock(ReservationRepository.class);
+        when(repository.findIntervalsEndingAfter(any())).thenReturn(List.of());
+        index = new ReservationIntervalIndex();
+        ReflectionTestUtils.setField(index, "reservationRepository", repository);
+        ReflectionTestUtils.setField(index, "availabilityCache", new AvailabilityCache(100));
+    }
+
+    @AfterEach
+    void restoreZone() {
+        TimeZone.setDefault(originalZone);
+    }
+
+    @Test
+    void overlapUsesHalfOpenIntervals() {
+        index.add(1, 100, T, T.plusHours(1));
+        index.add(1, 101, T.plusHours(3), T.plusHours(4));
+
+        assertTrue(index.overlaps(1, T.plusMinutes(30), T.plusMinutes(40)));
+        assertTrue(index.overlaps(1, T.plusMinutes(59), T.plusHours(2)));
+        assertTrue(index.overlaps(1, T.minusHours(1), T.plusMinutes(1)));
+        assertFalse(index.overlaps(1, T.plusMinutes(61), T.plusMinutes(179)));
+        assertFalse(index.overlaps(2, T, T.plusHours(4)));                  // other spot
+    }
+
+    @Test
+    void adjacentBookingsDoNotOverlap() {
+        index.add(1, 100, T, T.plusHours(1));
+        index.add(1, 101, T.plusHours(3), T.plusHours(4));
+
+        assertFalse(index.overlaps(1, T.plusHours(1), T.plusHours(2)));     // starts as 100 ends
+        assertFalse(index.overlaps(1, T.minusHours(1), T));                 // ends as 100 starts
+        assertFalse(index.overlaps(1, T.plusHours(1), T.plusHours(3)));     // fills the gap exactly
+        assertEquals(0, index.intervalsTouching(1, T.plusHours(1), T.plusHours(3)).length);
+        assertEquals(0, index.gapSlackMillis(1, T.plusHours(1), T.plusHours(3), 3_600_000L));
+    }
+
+    @Test
+    void longReservationIsFoundBehindShorterLaterOnes() {
+        index.add(1, 100, T, T.plusHours(10));
+        index.add(1, 101, T.plusHours(1), T.plusHours(2));
+        index.add(1, 102, T.plusHours(3), T.plusHours(4));
+
+        // starts after 101 and 102 ended, but still inside 100
+        assertTrue(index.overlaps(1, T.plusHours(5), T.plusHours(6)));
+        assertEquals(100L, index.activeReservationId(1, T.plusHours(5)));
+        assertNull(index.activeReservationId(1, T.plusHours(10)));
+    }
+
+    @Test
+    void removeAndFreeGaps() {
+        index.add(1, 100, T.plusHours(1), T.plusHours(2));
+        index.add(1, 101, T.plusHours(3), T.plusHours(4));
+        index.remove(1, 100);
+
+        List<AvailabilityService.TimeInterval> free = index.freeIntervals(1, T, T.plusHours(5));
+        assertEquals(2, free.size());
+        assertEquals(T, free.get(0).getStart());
+        assertEquals(T.plusHours(3), free.get(0).getEnd());
+        assertEquals(T.plusHours(4), free.get(1).getStart());
+        assertEquals(T.plusHours(5), free.get(1).getEnd());
+    }
+
+    @Test
+    void pruneKeepsLiveReservationsWestOfUtc() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        LocalDateTime now = LocalDateTime.now();
+        index.add(1, 100, now.minusHours(1), now.plusHours(1));
+        index.add(1, 101, now.minusHours(3), now.minusHours(2)); // already over, pruned on the next add
+        index.add(1, 102, now.plusHours(2), now.plusHours(3));  // triggers the prune
+
+        assertTrue(index.overlaps(1, now, now.plusMinutes(10)));
+        assertEquals(100L, index.activeReservationId(1, now));
+        assertEquals(0, index.intervalsTouching(1, now.minusHours(3), now.minusHours(2)).length);
+    }
+
+    @Test
+    void pruneKeepsLiveReservationsEastOfUtc() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        LocalDateTime now = LocalDateTime.now();
+        index.add(1, 100, now.minusHours(1), now.plusHours(1));
+        index.add(1, 102, now.plusHours(2), now.plusHours(3));
+
+        assertTrue(index.overlaps(1, now, now.plusMinutes(10)));
+    }
+}
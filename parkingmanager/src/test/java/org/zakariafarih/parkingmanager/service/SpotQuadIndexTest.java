@@ -0,0 +1,106 @@
+package org.zakariafarih.parkingmanager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SpotQuadIndexTest {
+
+    private SpotQuadIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // spots 10 and 11 on camera 1, spot 12 on camera 2 at the same pixels as spot 10,
+        // spot 13 saved before cameras were told apart (lot 0)
+        String json = "["
+                + row(10, "[[0,0],[10,0],[10,10],[0,10]]", "1") + ","
+                + row(11, "[[20,0],[30,0],[30,10],[20,10]]", "1") + ","
+                + row(12, "[[0,0],[10,0],[10,10],[0,10]]", "2") + ","
+                + row(13, "[[0,0],[10,0],[10,10],[0,10]]", "null") + "]";
+        SpotGeometryService geometry = mock(SpotGeometryService.class);
+        when(geometry.current()).thenReturn(new SpotGeometryService.Blob(
+                json.getBytes(StandardCharsets.UTF_8), new byte[0], "\"a\"", "\"a-gz\""));
+        OccupancyStateStore store = mock(OccupancyStateStore.class);
+        when(store.ordinalOfId(anyLong())).thenAnswer(call -> (int) (call.<Long>getArgument(0) - 10));
+
+        index = new SpotQuadIndex();
+        ReflectionTestUtils.setField(index, "spotGeometryService", geometry);
+        ReflectionTestUtils.setField(index, "occupancyStateStore", store);
+        ReflectionTestUtils.setField(index, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(index, "maxBoxes", 4);
+    }
+
+    @Test
+    void matchesOnlyTheCameraOfTheFrame() {
+        OccupancyFrame frame = index.match(1, 5L, new double[] {2, 2, 8, 8});
+
+        Map<Integer, Boolean> spots = spots(frame);
+        assertEquals(Map.of(0, true, 1, false), spots);
+        assertEquals(1, frame.getLotId());
+        assertEquals(5L, frame.getSequence());
+
+        assertEquals(Map.of(2, false), spots(index.match(2, 1L, new double[] {22, 2, 28, 8})));
+        assertEquals(Map.of(3, true), spots(index.match(0, 1L, new double[] {2, 2, 8, 8})));
+    }
+
+    @Test
+    void cameraWithoutCornersIsRejected() {
+        assertNull(index.match(9, 1L, new double[] {2, 2, 8, 8}));
+    }
+
+    @Test
+    void publishMovesSpotToItsNewCamera() {
+        // spot 12 (ordinal 2) moves from camera 2 to camera 1
+        index.publish(new int[] {1}, new int[] {2}, new int[][] {{40, 0, 50, 0, 50, 10, 40, 10}});
+
+        Map<Integer, Boolean> lot1 = spots(index.match(1, 1L, new double[] {42, 2, 48, 8}));
+        assertEquals(Map.of(0, false, 1, false, 2, true), lot1);
+        assertNull(index.match(2, 1L, new double[0]));
+        assertArrayEquals(new int[] {1, 1, 1, 0}, index.lotsOfOrdinals());
+    }
+
+    @Test
+    void lotsOfOrdinalsMapsEachSpotToItsCamera() {
+        assertArrayEquals(new int[] {1, 1, 2, 0}, index.lotsOfOrdinals());
+
+        // ordinal 5 gains corners; ordinal 4 never had any
+        index.publish(new int[] {2}, new int[] {5}, new int[][] {{0, 0, 10, 0, 10, 10}});
+        assertArrayEquals(new int[] {1, 1, 2, 0, -1, 2}, index.lotsOfOrdinals());
+    }
+
+    @Test
+    void tooManyBoxesAreRejected() {
+        assertThrows(RuntimeException.class, () -> index.match(1, 1L, new double[20]));
+        double[] four = new double[16];
+        Arrays.fill(four, 100);
+        assertFalse(spots(index.match(1, 1L, four)).get(0));
+    }
+
+    private static Map<Integer, Boolean> spots(OccupancyFrame frame) {
+        Map<Integer, Boolean> spots = new HashMap<>();
+        for (int i = 0; i < frame.getLength(); i++) {
+            spots.put(frame.ordinalAt(i), frame.isOccupied(i));
+        }
+        return spots;
+    }
+
+    private static String row(long id, String corners, String lotId) {
+        return "{\"id\":" + id + ",\"label\":\"" + id + "\",\"coordinates\":\"{}\","
+                + "\"imageCoordinates\":\"" + corners + "\",\"imageLotId\":" + lotId + "}";
+    }
+}
@@ -0,0 +1,102 @@
+package org.zakariafarih.parkingmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    // not aligned to any level, so cascades happen mid-way through a deadline's delay
+    private static final long START = 1_000_003;
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(START);
+    private final Map<String, Long> firedAt = new TreeMap<>();
+
+    @Test
+    void timersOnTheSameTickFireTogetherAndNotEarlier() {
+        wheel.schedule("a", START + 1);
+        wheel.schedule("b", START + 1);
+        wheel.schedule("c", START + 2);
+
+        advanceTo(START);
+        assertTrue(firedAt.isEmpty());
+        advanceTo(START + 1);
+        assertEquals(Map.of("a", START + 1, "b", START + 1), firedAt);
+        advanceTo(START + 2);
+        assertEquals(START + 2, firedAt.get("c"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timersFireOnTheirExactTickAcrossLevelBoundaries() {
+        long[] delays = {63, 64, 65, 64 * 64 - 1, 64 * 64, 64 * 64 * 64 + 5, 64L * 64 * 64 * 64 - 1};
+        for (long delay : delays) {
+            wheel.schedule("d" + delay, START + delay);
+        }
+        assertEquals(delays.length, wheel.size());
+
+        advanceTo(START + 64L * 64 * 64 * 64);
+        for (long delay : delays) {
+            assertEquals(START + delay, firedAt.get("d" + delay), "delay " + delay);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineBeyondTheHorizonCascadesDownFromTheTopLevel() {
+        long horizon = 64L * 64 * 64 * 64;
+        wheel.schedule("far", START + horizon + 100);
+
+        advanceTo(START + horizon + 99);
+        assertTrue(firedAt.isEmpty());
+        assertEquals(1, wheel.size());
+        advanceTo(START + horizon + 100);
+        assertEquals(Map.of("far", START + horizon + 100), firedAt);
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        TimingWheel.Timer<String> near = wheel.schedule("near", START + 3);
+        TimingWheel.Timer<String> far = wheel.schedule("far", START + 5000);
+        TimingWheel.Timer<String> kept = wheel.schedule("kept", START + 3);
+
+        wheel.cancel(near);
+        wheel.cancel(far);
+        wheel.cancel(far); // second cancel is a no-op
+        assertEquals(1, wheel.size());
+
+        advanceTo(START + 10_000);
+        assertEquals(Map.of("kept", START + 3), firedAt);
+
+        wheel.cancel(kept); // already fired
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastAndCurrentDeadlinesFireOnTheNextTick() {
+        advanceTo(START + 10);
+        wheel.schedule("past", START);
+        wheel.schedule("now", START + 10);
+
+        advanceTo(START + 10);
+        assertTrue(firedAt.isEmpty());
+        advanceTo(START + 11);
+        assertEquals(Map.of("past", START + 11, "now", START + 11), firedAt);
+    }
+
+    private void advanceTo(long tick) {
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(tick, timer -> {
+            fired.add(timer.payload);
+            firedAt.put(timer.payload, wheel.currentTick());
+        });
+        assertEquals(tick, wheel.currentTick());
+        assertEquals(fired.size(), fired.stream().distinct().count(), "a timer fired twice");
+    }
+}